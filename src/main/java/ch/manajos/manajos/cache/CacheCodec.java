@@ -0,0 +1,180 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding of the on-disk cache snapshots, selected by the "cache.codec.*" properties.
+ * Snapshots are written as JSON, Smile or CBOR, optionally gzip-compressed, and get the matching
+ * file extension, e.g. ".json" or ".sml.gz". Reads do not depend on the configuration: the format of
+ * a file is detected from its first bytes, so snapshots written before a change of codec stay readable.
+ */
+@Component
+public class CacheCodec {
+
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] SMILE_MAGIC = {':', ')', '\n'};
+    private static final String GZIP_EXTENSION = ".gz";
+    // Enough to skip the leading whitespace of a JSON snapshot
+    private static final int PEEK_BYTES = 64;
+
+    public enum Format {
+        JSON(".json", JsonFactory::new),
+        SMILE(".sml", SmileFactory::new),
+        CBOR(".cbor", CBORFactory::new);
+
+        private final String extension;
+        private final ObjectMapper objectMapper;
+
+        Format(String extension, Supplier<JsonFactory> factory) {
+            this.extension = extension;
+            // Release dates are written as ISO strings so that every format reads them back the same way
+            this.objectMapper = new ObjectMapper(factory.get())
+                    .registerModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final Format format;
+    private final boolean gzip;
+
+    public CacheCodec(@Value("${cache.codec.format:json}") String format,
+                      @Value("${cache.codec.gzip:false}") boolean gzip) {
+        this.format = Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        this.gzip = gzip;
+    }
+
+    /**
+     * @return The file extension of the snapshots written with this codec, e.g. ".json" or ".sml.gz"
+     */
+    public String extension() {
+        return format.getExtension() + (gzip ? GZIP_EXTENSION : "");
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        byte[] encoded = format.objectMapper.writeValueAsBytes(value);
+        if (!gzip) {
+            return encoded;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(encoded.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(encoded);
+        }
+        return compressed.toByteArray();
+    }
+
+    public void write(File file, Object value) throws IOException {
+        Files.write(file.toPath(), encode(value));
+    }
+
+    public <T> T read(File file, TypeReference<T> type) throws IOException {
+        try (JsonParser parser = createParser(file)) {
+            return parser.readValueAs(type);
+        }
+    }
+
+    public <T> T read(File file, Class<T> type) throws IOException {
+        try (JsonParser parser = createParser(file)) {
+            return parser.readValueAs(type);
+        }
+    }
+
+    /**
+     * Open a token-level parser on a snapshot, whatever its format. The file is streamed, not loaded at once.
+     */
+    public JsonParser createParser(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            if (startsWith(peek(in, GZIP_MAGIC.length), GZIP_MAGIC)) {
+                in = new BufferedInputStream(new GZIPInputStream(in));
+            }
+            return detect(peek(in, PEEK_BYTES)).objectMapper.createParser(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find the most recently written variant of a fixed-name snapshot, e.g. "upcomingGames.json"
+     * or "upcomingGames.cbor.gz" for the base name "upcomingGames".
+     * @return The file, or null if no variant exists
+     */
+    public File find(File dir, String baseName) {
+        File latest = null;
+        for (Format candidate : Format.values()) {
+            for (String suffix : new String[] {"", GZIP_EXTENSION}) {
+                File file = new File(dir, baseName + candidate.getExtension() + suffix);
+                if (file.exists() && (latest == null || file.lastModified() > latest.lastModified())) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Read the first bytes of a stream without consuming them.
+     */
+    private static byte[] peek(InputStream in, int length) throws IOException {
+        in.mark(length);
+        byte[] head = in.readNBytes(length);
+        in.reset();
+        return head;
+    }
+
+    /**
+     * JSON snapshots start with '[' or '{', possibly after whitespace, Smile ones with ":)\n".
+     * Anything else is read as CBOR, whose arrays and maps start with a byte of 0x80 or more.
+     */
+    private static Format detect(byte[] content) {
+        if (startsWith(content, SMILE_MAGIC)) {
+            return Format.SMILE;
+        }
+        for (byte b : content) {
+            if (b == '[' || b == '{') {
+                return Format.JSON;
+            }
+            if (!Character.isWhitespace(b)) {
+                break;
+            }
+        }
+        return Format.CBOR;
+    }
+
+    private static boolean startsWith(byte[] content, byte[] magic) {
+        if (content.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (content[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
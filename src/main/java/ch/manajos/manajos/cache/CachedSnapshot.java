@@ -0,0 +1,46 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.utils.UpstreamUnavailableException;
+import reactor.core.publisher.Mono;
+
+/**
+ * A cached value together with the time it was written.
+ * A stale snapshot is past its TTL but still within its max-stale bound; it is served
+ * as is while a background refresh renews it.
+ * @param overlaidAt Publication time of live data merged into the value when served, e.g. a player count;
+ *                   0 if the value is served as cached. Part of the response validators with writtenAt.
+ */
+public record CachedSnapshot<T>(T value, long writtenAt, boolean stale, long overlaidAt) {
+
+    public CachedSnapshot(T value, long writtenAt, boolean stale) {
+        this(value, writtenAt, stale, 0);
+    }
+
+    public long ageMillis() {
+        return System.currentTimeMillis() - writtenAt;
+    }
+
+    /**
+     * @return The same snapshot flagged as stale, e.g. served past its max-stale bound while upstream is down
+     */
+    public CachedSnapshot<T> asStale() {
+        return stale ? this : new CachedSnapshot<>(value, writtenAt, true, overlaidAt);
+    }
+
+    /**
+     * Fall back to the latest snapshot, whatever its age, when a load failed because upstream is down.
+     * Any other error, or an upstream failure without a snapshot to serve, is propagated.
+     * @param latest The latest snapshot, empty if there is none
+     * @param upstream Name of the upstream, for the error raised when there is no snapshot
+     */
+    public static <T> Mono<CachedSnapshot<T>> lastGood(Mono<CachedSnapshot<T>> latest, Throwable error, String upstream) {
+        if (!UpstreamUnavailableException.isUpstreamFailure(error)) {
+            return Mono.error(error);
+        }
+        return latest
+                .doOnNext(snapshot -> System.err.println("Serving last good snapshot, " + upstream + " failed: " + error.getMessage()))
+                .map(CachedSnapshot::asStale)
+                .switchIfEmpty(Mono.error(() -> error instanceof UpstreamUnavailableException
+                        ? error : new UpstreamUnavailableException(upstream, error)));
+    }
+}
@@ -0,0 +1,163 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Player count and rank of every game of the current top games snapshot, keyed by appId.
+ * The index is an open-addressing table of primitive arrays, built off to the side
+ * and published with a single volatile write whenever a snapshot lands, so lookups are constant-time,
+ * lock-free and never see a half-built table.
+ */
+@Component
+public class LivePlayerIndex {
+
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Player count and rank of a game, read together with the publication time of the index they come from.
+     * @param publishedAt When the index was published, in epoch milliseconds; 0 before the first publication
+     */
+    public record Entry(int playerCount, int rank, long publishedAt) {}
+
+    private volatile Table table = Table.EMPTY;
+
+    /**
+     * Replace the index content with the games of a top games snapshot.
+     */
+    public void publish(List<SteamGameResponse> games) {
+        Table next = new Table(games.size());
+        for (SteamGameResponse game : games) {
+            if (game.getAppId() != null) {
+                next.put(game.getAppId(),
+                        game.getPlayerCount() != null ? game.getPlayerCount() : UNKNOWN,
+                        game.getRank() != null ? game.getRank() : UNKNOWN);
+            }
+        }
+        next.publishedAt = System.currentTimeMillis();
+        table = next;
+    }
+
+    /**
+     * Replace the index content with the entries of a top games snapshot file, read without decoding names or prices.
+     */
+    public void publish(CacheCodec codec, File snapshot) throws IOException {
+        Table next = new Table(0);
+        TopGamesSnapshotReader.read(codec, snapshot, (appId, peak, rank) -> {
+            next.put(appId, peak, rank);
+            return true;
+        });
+        next.publishedAt = System.currentTimeMillis();
+        table = next;
+    }
+
+    /**
+     * @return The current player count of a game, or UNKNOWN if it is not in the top games
+     */
+    public int playerCount(long appId) {
+        Table current = table;
+        int slot = current.find(appId);
+        return slot < 0 ? UNKNOWN : current.playerCounts[slot];
+    }
+
+    /**
+     * @return The current player count and rank of a game, UNKNOWN if it is not in the top games,
+     * with the publication time of the index they were read from
+     */
+    public Entry entry(long appId) {
+        Table current = table;
+        int slot = current.find(appId);
+        return slot < 0
+                ? new Entry(UNKNOWN, UNKNOWN, current.publishedAt)
+                : new Entry(current.playerCounts[slot], current.ranks[slot], current.publishedAt);
+    }
+
+    /**
+     * @return The current rank of a game, or UNKNOWN if it is not in the top games
+     */
+    public int rank(long appId) {
+        Table current = table;
+        int slot = current.find(appId);
+        return slot < 0 ? UNKNOWN : current.ranks[slot];
+    }
+
+    /**
+     * Linear-probing table; appId 0 marks an empty slot, Steam never assigns it.
+     * Only written before it is published.
+     */
+    private static final class Table {
+        static final Table EMPTY = new Table(0);
+
+        long[] appIds;
+        int[] playerCounts;
+        int[] ranks;
+        int mask;
+        int size;
+        long publishedAt;
+
+        Table(int expected) {
+            // At most half full so probe sequences stay short
+            allocate(Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1);
+        }
+
+        void put(long appId, int playerCount, int rank) {
+            if (appId == 0) {
+                return;
+            }
+            if ((size + 1) * 2 > appIds.length) {
+                grow();
+            }
+            int slot = slot(appId);
+            while (appIds[slot] != 0 && appIds[slot] != appId) {
+                slot = (slot + 1) & mask;
+            }
+            if (appIds[slot] == 0) {
+                size++;
+            }
+            appIds[slot] = appId;
+            playerCounts[slot] = playerCount;
+            ranks[slot] = rank;
+        }
+
+        int find(long appId) {
+            if (appId == 0) {
+                return -1;
+            }
+            for (int slot = slot(appId); appIds[slot] != 0; slot = (slot + 1) & mask) {
+                if (appIds[slot] == appId) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void allocate(int capacity) {
+            appIds = new long[capacity];
+            playerCounts = new int[capacity];
+            ranks = new int[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldAppIds = appIds;
+            int[] oldPlayerCounts = playerCounts;
+            int[] oldRanks = ranks;
+            allocate(oldAppIds.length * 2);
+            for (int i = 0; i < oldAppIds.length; i++) {
+                if (oldAppIds[i] != 0) {
+                    put(oldAppIds[i], oldPlayerCounts[i], oldRanks[i]);
+                }
+            }
+        }
+
+        private int slot(long appId) {
+            long hash = appId * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
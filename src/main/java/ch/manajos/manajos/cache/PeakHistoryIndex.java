@@ -0,0 +1,218 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory per-app index of the peak history.
+ * Each app keeps its (timestamp, peak) series in two parallel primitive arrays sorted by timestamp,
+ * so a lookup costs a binary search on the cutoff plus the points of that app only.
+ * The index is rebuilt from the {@link PeakHistoryStore} at startup and extended every time
+ * a top games snapshot is saved.
+ */
+@Component
+public class PeakHistoryIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @FunctionalInterface
+    public interface PointVisitor {
+        void visit(long timestamp, int peak);
+    }
+
+    @FunctionalInterface
+    public interface MergedPointVisitor {
+        /**
+         * @param app The position of the point's app in the requested appIds
+         */
+        void visit(long timestamp, int app, int peak);
+    }
+
+    private final PeakHistoryStore store;
+    private final Map<Long, Series> seriesByApp = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PeakHistoryIndex(PeakHistoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Replace the index content with the whole history of the store.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            seriesByApp.clear();
+            store.scan(Long.MIN_VALUE, (timestamp, appId, peak, rank) -> add(appId, timestamp, peak));
+            seriesByApp.values().forEach(Series::trim);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add one top games snapshot to the index.
+     */
+    public void append(long timestamp, List<SteamGameResponse> games) {
+        lock.writeLock().lock();
+        try {
+            for (SteamGameResponse game : games) {
+                if (game.getAppId() != null && game.getPlayerCount() != null) {
+                    add(game.getAppId(), timestamp, game.getPlayerCount());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visit the points of one app written at or after the cutoff, in timestamp order.
+     * @param appId The Steam App ID
+     * @param fromTimestamp The cutoff, use Long.MIN_VALUE for the whole history
+     * @param visitor Receives each point
+     */
+    public void visit(long appId, long fromTimestamp, PointVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            Series series = seriesByApp.get(appId);
+            if (series == null) {
+                return;
+            }
+            for (int i = series.lowerBound(fromTimestamp); i < series.size; i++) {
+                visitor.visit(series.timestamps[i], series.peaks[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit the points of several apps written at or after the cutoff, merged in timestamp order.
+     * Each series is read once; points sharing a timestamp are visited consecutively.
+     * @param appIds The Steam App IDs
+     * @param fromTimestamp The cutoff, use Long.MIN_VALUE for the whole history
+     * @param visitor Receives each point with the position of its app in appIds
+     */
+    public void visitMerged(long[] appIds, long fromTimestamp, MergedPointVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            Series[] series = new Series[appIds.length];
+            int[] positions = new int[appIds.length];
+            for (int app = 0; app < appIds.length; app++) {
+                series[app] = seriesByApp.get(appIds[app]);
+                positions[app] = series[app] != null ? series[app].lowerBound(fromTimestamp) : 0;
+            }
+            while (true) {
+                // The next timestamp is the smallest head among the series; only a handful of apps are merged
+                long next = Long.MAX_VALUE;
+                for (int app = 0; app < series.length; app++) {
+                    if (series[app] != null && positions[app] < series[app].size) {
+                        next = Math.min(next, series[app].timestamps[positions[app]]);
+                    }
+                }
+                if (next == Long.MAX_VALUE) {
+                    return;
+                }
+                for (int app = 0; app < series.length; app++) {
+                    Series current = series[app];
+                    if (current != null && positions[app] < current.size && current.timestamps[positions[app]] == next) {
+                        visitor.visit(next, app, current.peaks[positions[app]]);
+                        positions[app]++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of points of one app written at or after the cutoff
+     */
+    public int count(long appId, long fromTimestamp) {
+        lock.readLock().lock();
+        try {
+            Series series = seriesByApp.get(appId);
+            return series == null ? 0 : series.size - series.lowerBound(fromTimestamp);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The timestamp of the first point of one app at or after the cutoff, or Long.MIN_VALUE if there is none
+     */
+    public long firstTimestamp(long appId, long fromTimestamp) {
+        lock.readLock().lock();
+        try {
+            Series series = seriesByApp.get(appId);
+            if (series == null) {
+                return Long.MIN_VALUE;
+            }
+            int first = series.lowerBound(fromTimestamp);
+            return first < series.size ? series.timestamps[first] : Long.MIN_VALUE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(long appId, long timestamp, int peak) {
+        seriesByApp.computeIfAbsent(appId, id -> new Series()).add(timestamp, peak);
+    }
+
+    /**
+     * Growable pair of primitive arrays holding one app's points.
+     */
+    private static final class Series {
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private int[] peaks = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(long timestamp, int peak) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                peaks = Arrays.copyOf(peaks, size * 2);
+            }
+            // Snapshots arrive in timestamp order; keep the arrays sorted if one does not
+            int position = size;
+            while (position > 0 && timestamps[position - 1] > timestamp) {
+                position--;
+            }
+            System.arraycopy(timestamps, position, timestamps, position + 1, size - position);
+            System.arraycopy(peaks, position, peaks, position + 1, size - position);
+            timestamps[position] = timestamp;
+            peaks[position] = peak;
+            size++;
+        }
+
+        void trim() {
+            timestamps = Arrays.copyOf(timestamps, Math.max(size, 1));
+            peaks = Arrays.copyOf(peaks, Math.max(size, 1));
+        }
+
+        /**
+         * Index of the first point at or after the timestamp.
+         */
+        int lowerBound(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
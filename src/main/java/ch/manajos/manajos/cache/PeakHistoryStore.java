@@ -0,0 +1,218 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only store of peak-player history.
+ * Every top games snapshot is stored as fixed-width records of
+ * (timestamp: long, appId: long, peak: int, rank: int), appended in timestamp order.
+ * Because records are sorted by timestamp, a query seeks to its cutoff with a binary search
+ * and only scans the records that follow it.
+ */
+@Component
+public class PeakHistoryStore {
+
+    public static final int RECORD_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    // Number of records read from disk at once while scanning
+    private static final int SCAN_BATCH_RECORDS = 4096;
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long timestamp, long appId, int peak, int rank);
+    }
+
+    private final Path file;
+    private final CacheCodec cacheCodec;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PeakHistoryStore(@Value("${steam.peak-history.file:src/main/resources/cache/peakHistory/peaks.bin}") String file,
+                            CacheCodec cacheCodec) {
+        this.file = Paths.get(file);
+        this.cacheCodec = cacheCodec;
+    }
+
+    /**
+     * Append one top games snapshot.
+     * @param timestamp The snapshot time, expected not to be older than the last appended snapshot
+     * @param games The ranked games of the snapshot
+     */
+    public void append(long timestamp, List<SteamGameResponse> games) {
+        ByteBuffer buffer = ByteBuffer.allocate(games.size() * RECORD_SIZE);
+        for (SteamGameResponse game : games) {
+            putRecord(buffer, timestamp, game);
+        }
+        buffer.flip();
+
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Drop a partial record left by an interrupted write before appending
+                long end = channel.size() - channel.size() % RECORD_SIZE;
+                channel.truncate(end);
+                channel.position(end);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visit every record written at or after the cutoff, in timestamp order.
+     * @param fromTimestamp The cutoff, use Long.MIN_VALUE to scan the whole history
+     * @param visitor Receives each record
+     */
+    public void scan(long fromTimestamp, RecordVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long count = channel.size() / RECORD_SIZE;
+                long index = firstRecordAtOrAfter(channel, count, fromTimestamp);
+
+                ByteBuffer buffer = ByteBuffer.allocate(SCAN_BATCH_RECORDS * RECORD_SIZE);
+                while (index < count) {
+                    int batch = (int) Math.min(SCAN_BATCH_RECORDS, count - index);
+                    buffer.clear().limit(batch * RECORD_SIZE);
+                    readFully(channel, buffer, index * RECORD_SIZE);
+                    buffer.flip();
+                    for (int i = 0; i < batch; i++) {
+                        visitor.visit(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+                    }
+                    index += batch;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the store file exists, i.e. history has already been written or imported
+     */
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * One-time import of the existing "topGames_*" snapshots.
+     * Does nothing if the store already exists. Only the appid, peak and rank fields of the snapshots
+     * are decoded, see {@link TopGamesSnapshotReader}. Snapshots are written in timestamp order to a
+     * temporary file that replaces the store in one move, so an interrupted import is simply retried.
+     * @param topGamesDir The directory holding the JSON snapshots
+     * @return The number of imported snapshots
+     */
+    public int importSnapshots(File topGamesDir) {
+        File[] files = topGamesDir.listFiles((dir, name) -> name.startsWith("topGames_"));
+        if (exists() || files == null) {
+            return 0;
+        }
+        Arrays.sort(files, Comparator.comparingLong(SnapshotManifest::snapshotTimestamp));
+
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".import");
+            int imported = 0;
+            // One buffer reused for every snapshot, grown when a snapshot does not fit
+            ByteBuffer[] buffer = {ByteBuffer.allocate(SCAN_BATCH_RECORDS * RECORD_SIZE)};
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (File snapshot : files) {
+                    long timestamp = SnapshotManifest.snapshotTimestamp(snapshot);
+                    if (timestamp < 0) {
+                        continue;
+                    }
+                    buffer[0].clear();
+                    try {
+                        TopGamesSnapshotReader.read(cacheCodec, snapshot, (appId, peak, rank) -> {
+                            if (buffer[0].remaining() < RECORD_SIZE) {
+                                buffer[0] = ByteBuffer.allocate(buffer[0].capacity() * 2).put(buffer[0].flip());
+                            }
+                            buffer[0].putLong(timestamp).putLong(appId).putInt(peak).putInt(rank);
+                            return true;
+                        });
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    buffer[0].flip();
+                    while (buffer[0].hasRemaining()) {
+                        channel.write(buffer[0]);
+                    }
+                    imported++;
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return imported;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, long timestamp, SteamGameResponse game) {
+        buffer.putLong(timestamp);
+        buffer.putLong(game.getAppId() != null ? game.getAppId() : 0L);
+        buffer.putInt(game.getPlayerCount() != null ? game.getPlayerCount() : 0);
+        buffer.putInt(game.getRank() != null ? game.getRank() : 0);
+    }
+
+    /**
+     * Binary search for the index of the first record whose timestamp is at or after the cutoff.
+     */
+    private static long firstRecordAtOrAfter(FileChannel channel, long count, long fromTimestamp) throws IOException {
+        ByteBuffer timestamp = ByteBuffer.allocate(Long.BYTES);
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            timestamp.clear();
+            readFully(channel, timestamp, mid * RECORD_SIZE);
+            if (timestamp.getLong(0) < fromTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of peak history store");
+            }
+            position += read;
+        }
+    }
+}
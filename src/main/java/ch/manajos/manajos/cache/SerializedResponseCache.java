@@ -0,0 +1,50 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Ready-to-send JSON bodies of the cached responses.
+ * Each view is serialized once per cache generation, i.e. once per snapshot value, with the
+ * application's ObjectMapper so the bytes match what Spring MVC would have written. Later requests
+ * for the same snapshot get the same bytes without regrouping or serializing anything.
+ */
+@Component
+public class SerializedResponseCache {
+
+    private record Entry(Object source, byte[] body) {}
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SerializedResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the serialized body of a view of a snapshot value.
+     * @param view The view name, e.g. "topGames"
+     * @param source The snapshot value; a different instance means a new cache generation
+     * @param projection Builds the response object from the snapshot value
+     * @return The UTF-8 JSON body
+     */
+    public <T> byte[] get(String view, T source, Function<T, ?> projection) {
+        Entry entry = entries.get(view);
+        if (entry != null && entry.source() == source) {
+            return entry.body();
+        }
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(projection.apply(source));
+            entries.put(view, new Entry(source, body));
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.config.CacheRetentionProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes old snapshots from cache directories according to the {@link CacheRetentionProperties}.
+ * Snapshots whose content is identical to a newer kept snapshot are deleted whatever their age.
+ * The latest snapshot of a directory, as resolved by the {@link SnapshotManifest}, is never deleted.
+ */
+@Component
+public class SnapshotCompactor {
+
+    private final SnapshotManifest snapshotManifest;
+    private final CacheRetentionProperties properties;
+
+    public SnapshotCompactor(SnapshotManifest snapshotManifest, CacheRetentionProperties properties) {
+        this.snapshotManifest = snapshotManifest;
+        this.properties = properties;
+    }
+
+    /**
+     * Compact every namespace directory directly under a root, e.g. every app of the game details cache.
+     * @param root The directory holding one directory per namespace
+     * @param prefix The file name prefix of the snapshots
+     * @return The number of deleted snapshots
+     */
+    public int compactAll(File root, String prefix) {
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (File dir : dirs) {
+            deleted += compact(dir, prefix);
+        }
+        return deleted;
+    }
+
+    /**
+     * Compact one namespace directory.
+     * @param dir The cache directory
+     * @param prefix The file name prefix of its snapshots
+     * @return The number of deleted snapshots
+     */
+    public int compact(File dir, String prefix) {
+        File[] files = dir.listFiles((parent, name) -> name.startsWith(prefix));
+        SnapshotManifest.Entry latest = snapshotManifest.resolve(dir, prefix);
+        if (files == null || latest == null) {
+            return 0;
+        }
+
+        // The latest snapshot comes first, then the others from newest to oldest
+        List<File> snapshots = new ArrayList<>(List.of(files));
+        snapshots.sort(Comparator.comparing((File file) -> !file.getName().equals(latest.file()))
+                .thenComparing(Comparator.comparingLong(SnapshotManifest::snapshotTimestamp).reversed()));
+
+        long cutoff = System.currentTimeMillis() - properties.getMaxAge().toMillis();
+        Set<String> keptHashes = new HashSet<>();
+        int kept = 0;
+        int deleted = 0;
+        for (File snapshot : snapshots) {
+            String hash;
+            try {
+                hash = contentHash(Files.readAllBytes(snapshot.toPath()));
+            } catch (IOException e) {
+                continue;
+            }
+            boolean isLatest = snapshot.getName().equals(latest.file());
+            boolean duplicate = keptHashes.contains(hash);
+            boolean retained = kept < properties.getKeepLatest() || SnapshotManifest.snapshotTimestamp(snapshot) >= cutoff;
+            if (isLatest || (!duplicate && retained)) {
+                keptHashes.add(hash);
+                kept++;
+            } else if (snapshot.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return The hex SHA-256 of a snapshot content
+     */
+    public static String contentHash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the latest snapshot of every cache namespace, i.e. of every cache directory.
+ * Each namespace keeps a "manifest.json" holding the latest snapshot's file name and write time,
+ * mirrored in memory, so resolving the current snapshot is O(1) however many older snapshots the
+ * directory holds. The manifest is replaced atomically on every save. A directory without a
+ * manifest is scanned once and the manifest is created from the result.
+ * Snapshots written through {@link #write} are deduplicated: content identical to the latest
+ * snapshot is not written again, the latest snapshot is only marked as rewritten.
+ */
+@Component
+public class SnapshotManifest {
+
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    /**
+     * @param hash SHA-256 of the snapshot content, null if the entry was built by a directory scan
+     */
+    public record Entry(String file, long writtenAt, String hash) {}
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // One lock per directory, serializing its manifest writes without holding a map bin during the I/O
+    private final Map<String, Object> writeLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Get the latest snapshot of a namespace.
+     * @param dir The cache directory
+     * @param prefix The file name prefix of its snapshots, e.g. "topGames_"
+     * @return The latest snapshot, or null if the directory holds none
+     */
+    public Entry resolve(File dir, String prefix) {
+        String key = dir.getPath();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        entry = readManifest(dir);
+        boolean scanned = entry == null;
+        if (scanned) {
+            entry = scan(dir, prefix);
+            if (entry == null) {
+                return null;
+            }
+        }
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            return existing;
+        }
+        if (scanned) {
+            writeIfLatest(dir, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Record a newly written snapshot as the latest of its namespace.
+     * An older snapshot never replaces a newer one.
+     * @param dir The cache directory
+     * @param file The snapshot file name, relative to the directory
+     * @param writtenAt The snapshot write time
+     */
+    public void update(File dir, String file, long writtenAt) {
+        update(dir, file, writtenAt, null);
+    }
+
+    /**
+     * Write a snapshot and record it as the latest of its namespace, unless its content is
+     * identical to the latest snapshot. In that case no file is written: the latest snapshot's
+     * write time is moved to writtenAt, so it counts as fresh again.
+     * @param dir The cache directory, created if missing
+     * @param prefix The file name prefix of its snapshots
+     * @param file The file name to use if the content changed
+     * @param payload The serialized snapshot
+     * @param writtenAt The snapshot write time
+     * @return The name of the file holding the content
+     */
+    public String write(File dir, String prefix, String file, byte[] payload, long writtenAt) throws IOException {
+        String hash = SnapshotCompactor.contentHash(payload);
+        Entry latest = resolve(dir, prefix);
+        if (latest != null && hash.equals(hashOf(dir, latest))) {
+            new File(dir, latest.file()).setLastModified(writtenAt);
+            update(dir, latest.file(), writtenAt, hash);
+            return latest.file();
+        }
+        Files.createDirectories(dir.toPath());
+        Files.write(dir.toPath().resolve(file), payload);
+        update(dir, file, writtenAt, hash);
+        return file;
+    }
+
+    private void update(File dir, String file, long writtenAt, String hash) {
+        Entry entry = new Entry(file, writtenAt, hash);
+        Entry latest = entries.merge(dir.getPath(), entry,
+                (current, candidate) -> current.writtenAt() > candidate.writtenAt() ? current : candidate);
+        if (latest == entry) {
+            writeIfLatest(dir, entry);
+        }
+    }
+
+    /**
+     * Write the manifest of a directory, unless a newer entry replaced this one in the meantime:
+     * the update that recorded the newer entry writes it instead.
+     */
+    private void writeIfLatest(File dir, Entry entry) {
+        String key = dir.getPath();
+        synchronized (writeLocks.computeIfAbsent(key, k -> new Object())) {
+            if (entries.get(key) == entry) {
+                writeManifest(dir, entry);
+            }
+        }
+    }
+
+    /**
+     * Parse the timestamp out of a snapshot filename, e.g. "topGames_1740658015189.json".
+     * @return The timestamp, or -1 if the name does not contain one
+     */
+    public static long snapshotTimestamp(File snapshot) {
+        String filename = snapshot.getName();
+        try {
+            // The extension may have several parts, e.g. ".sml.gz"
+            int start = filename.indexOf('_') + 1;
+            return Long.parseLong(filename.substring(start, filename.indexOf('.', start)));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Hash of the snapshot an entry points at, read from disk when the entry does not carry it.
+     */
+    private static String hashOf(File dir, Entry entry) {
+        if (entry.hash() != null) {
+            return entry.hash();
+        }
+        try {
+            return SnapshotCompactor.contentHash(Files.readAllBytes(new File(dir, entry.file()).toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Entry readManifest(File dir) {
+        File manifest = new File(dir, MANIFEST_FILE);
+        if (!manifest.exists()) {
+            return null;
+        }
+        try {
+            Entry entry = objectMapper.readValue(manifest, Entry.class);
+            // Ignore a manifest pointing at a snapshot that no longer exists
+            return new File(dir, entry.file()).exists() ? entry : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Find the most recently written snapshot of a directory without a manifest.
+     */
+    private static Entry scan(File dir, String prefix) {
+        File[] files = dir.listFiles((parent, name) -> name.startsWith(prefix));
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        return Arrays.stream(files)
+                .max(Comparator.comparingLong(File::lastModified))
+                .map(file -> new Entry(file.getName(), file.lastModified(), null))
+                .orElse(null);
+    }
+
+    /**
+     * Write the manifest to a temporary file and move it over the previous one in a single step.
+     */
+    private void writeManifest(File dir, Entry entry) {
+        try {
+            Path manifest = dir.toPath().resolve(MANIFEST_FILE);
+            Path tmp = Files.createTempFile(dir.toPath(), "manifest", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), entry);
+            Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of the Steam AppID matched to each RAWG game by the Steam store search.
+ * Entries are keyed by RAWG id and normalized name, so a renamed game is searched again.
+ * A search without a match is cached too, as a negative entry with its own TTL.
+ * The cache is loaded once at startup and written back with {@link #flush()}.
+ */
+@Component
+public class SteamAppIdCache {
+
+    private static final String CACHE_FILE = "steamAppIds";
+
+    /**
+     * @param appId The Steam AppID, null if the search found no match
+     */
+    public record Resolution(Long appId, long resolvedAt) {}
+
+    private final CacheCodec cacheCodec;
+    private final File cacheDir;
+    private final Duration positiveTtl;
+    private final Duration negativeTtl;
+    private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public SteamAppIdCache(CacheCodec cacheCodec,
+                           @Value("${rawg.steam-app-id.cache-dir:src/main/resources/cache/steamAppIds/}") String cacheDir,
+                           @Value("${rawg.steam-app-id.positive-ttl:30d}") String positiveTtl,
+                           @Value("${rawg.steam-app-id.negative-ttl:7d}") String negativeTtl) {
+        this.cacheCodec = cacheCodec;
+        this.cacheDir = new File(cacheDir);
+        this.positiveTtl = DurationStyle.detectAndParse(positiveTtl);
+        this.negativeTtl = DurationStyle.detectAndParse(negativeTtl);
+    }
+
+    @PostConstruct
+    public void load() {
+        File file = cacheCodec.find(cacheDir, CACHE_FILE);
+        if (file == null) {
+            return;
+        }
+        try {
+            resolutions.putAll(cacheCodec.read(file, new TypeReference<Map<String, Resolution>>() {}));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The cached resolution of a game, or null if it was never searched or its entry expired
+     */
+    public Resolution get(Long rawgId, String name) {
+        Resolution resolution = resolutions.get(key(rawgId, name));
+        return resolution != null && !isExpired(resolution, System.currentTimeMillis()) ? resolution : null;
+    }
+
+    /**
+     * Record the result of a store search.
+     * @param appId The matched Steam AppID, null if the search found no match
+     */
+    public void put(Long rawgId, String name, Long appId) {
+        resolutions.put(key(rawgId, name), new Resolution(appId, System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    /**
+     * Write the cache to disk if it changed, dropping the expired entries.
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        long now = System.currentTimeMillis();
+        resolutions.values().removeIf(resolution -> isExpired(resolution, now));
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            Path file = cacheDir.toPath().resolve(CACHE_FILE + cacheCodec.extension());
+            Path tmp = Files.createTempFile(cacheDir.toPath(), CACHE_FILE, ".tmp");
+            cacheCodec.write(tmp.toFile(), new HashMap<>(resolutions));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            e.printStackTrace();
+        }
+    }
+
+    private boolean isExpired(Resolution resolution, long now) {
+        Duration ttl = resolution.appId() != null ? positiveTtl : negativeTtl;
+        return now - resolution.resolvedAt() > ttl.toMillis();
+    }
+
+    /**
+     * Key of a game: its RAWG id and its name lower-cased, without accents, punctuation or extra spaces.
+     */
+    static String key(Long rawgId, String name) {
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{Alnum}]+", " ")
+                .trim();
+        return rawgId + ":" + normalized;
+    }
+}
@@ -0,0 +1,64 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Streaming reader of "topGames_*" snapshots, in any {@link CacheCodec} format, that only decodes the appid, peak_in_game and rank fields.
+ * Names, image URLs and prices are skipped at the token level without being materialized as strings,
+ * so reading a snapshot allocates next to nothing besides the parser itself.
+ */
+public final class TopGamesSnapshotReader {
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        /**
+         * @return false to stop reading the snapshot
+         */
+        boolean visit(long appId, int peak, int rank);
+    }
+
+    private TopGamesSnapshotReader() {
+    }
+
+    /**
+     * Visit every entry of a snapshot in file order, until the visitor asks to stop.
+     * Missing or null fields are read as 0.
+     * @param codec The codec opening the snapshot
+     * @param snapshot The snapshot file
+     * @param visitor Receives each entry
+     * @return false if the visitor stopped the read early
+     */
+    public static boolean read(CacheCodec codec, File snapshot, EntryVisitor visitor) throws IOException {
+        try (JsonParser parser = codec.createParser(snapshot)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Top games snapshot is not an array: " + snapshot);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long appId = 0;
+                int peak = 0;
+                int rank = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    // Field names are canonicalized by the parser, so this allocates nothing
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "appid" -> appId = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : 0;
+                        case "peak_in_game" -> peak = value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : 0;
+                        case "rank" -> rank = value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : 0;
+                        // Unread string values are skipped without being decoded
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (!visitor.visit(appId, peak, rank)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
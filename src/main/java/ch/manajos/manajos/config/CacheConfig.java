@@ -1,17 +1,35 @@
 package ch.manajos.manajos.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * In-memory (L1) tier of the Steam and RAWG caches. The JSON files on disk remain the L2 store:
+ * an L1 miss reads the latest file once and keeps the snapshot in memory until it is evicted.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    public static final String TOP_GAMES = "topGames";
+    public static final String GAME_DETAILS = "gameDetails";
+    public static final String UPCOMING_GAMES = "upcomingGames";
+
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("topGames", "gameDetails");
+    public CacheManager cacheManager(@Value("${spring.cache.caffeine.spec:maximumSize=500,expireAfterWrite=1h}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(TOP_GAMES, GAME_DETAILS, UPCOMING_GAMES);
+        // Statistics are always recorded so that hit/miss counts can be reported
+        Caffeine<Object, Object> caffeine = Caffeine.from(spec);
+        if (!spec.contains("recordStats")) {
+            caffeine.recordStats();
+        }
+        cacheManager.setCaffeine(caffeine);
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package ch.manajos.manajos.config;
+
+import ch.manajos.manajos.cache.CachedSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Refresh policy of each file cache, bound from the "cache.refresh" properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.refresh")
+public class CacheRefreshProperties {
+
+    // Turns the background refresher on or off; stale snapshots are still renewed on access
+    private boolean enabled = true;
+
+    private Policy topGames = new Policy(Duration.ofHours(24), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofDays(7));
+    private Policy gameDetails = new Policy(Duration.ofDays(14), Duration.ofHours(6), Duration.ofMinutes(30), Duration.ofDays(60));
+    private Policy upcomingGames = new Policy(Duration.ofHours(12), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofDays(3));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+        // Age after which a snapshot is stale
+        private Duration ttl;
+        // Delay between two background refresh runs
+        private Duration interval;
+        // Random delay added to every run so the caches do not refresh in lockstep
+        private Duration jitter;
+        // Age after which a stale snapshot is no longer served and requests wait for a refresh
+        private Duration maxStale;
+
+        public boolean isStale(long ageMillis) {
+            return ageMillis > ttl.toMillis();
+        }
+
+        public boolean isServable(long ageMillis) {
+            return ageMillis <= maxStale.toMillis();
+        }
+
+        /**
+         * Apply this policy to a snapshot read from cache, whatever its age.
+         * @return The snapshot with its staleness flag set, or null if it is past the max-stale bound
+         */
+        public <T> CachedSnapshot<T> evaluate(CachedSnapshot<T> snapshot) {
+            if (snapshot == null) {
+                return null;
+            }
+            long age = snapshot.ageMillis();
+            if (!isServable(age)) {
+                return null;
+            }
+            return new CachedSnapshot<>(snapshot.value(), snapshot.writtenAt(), isStale(age), snapshot.overlaidAt());
+        }
+
+        /**
+         * A snapshot is due when it would expire before the next background run.
+         */
+        public boolean isDue(long ageMillis) {
+            return ageMillis + interval.toMillis() + jitter.toMillis() >= ttl.toMillis();
+        }
+    }
+}
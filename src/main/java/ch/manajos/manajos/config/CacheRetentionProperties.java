@@ -0,0 +1,28 @@
+package ch.manajos.manajos.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retention policy of the per-app game details snapshots, bound from the "cache.retention" properties.
+ * A snapshot is kept while it is one of the latest {@code keepLatest} snapshots of its app
+ * or younger than {@code maxAge}; the latest snapshot is always kept.
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.retention")
+public class CacheRetentionProperties {
+
+    // Turns the background compactor on or off
+    private boolean enabled = true;
+
+    // Number of snapshots kept per app whatever their age
+    private int keepLatest = 3;
+
+    // Age under which a snapshot is kept whatever its rank
+    private Duration maxAge = Duration.ofDays(30);
+
+    // Delay between two compaction runs
+    private Duration interval = Duration.ofHours(12);
+}
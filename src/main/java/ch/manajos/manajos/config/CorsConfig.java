@@ -1,16 +1,38 @@
 package ch.manajos.manajos.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+/**
+ * Same CORS mappings whether the API is served by Spring MVC or by WebFlux.
+ */
 @Configuration
 public class CorsConfig implements WebMvcConfigurer {
+
+    private static final String ALLOWED_ORIGIN = "http://localhost:3000";
+    private static final String[] ALLOWED_METHODS = {"GET", "POST", "PUT", "DELETE"};
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
-                .allowedOrigins("http://localhost:3000")
-                .allowedMethods("GET", "POST", "PUT", "DELETE")
+                .allowedOrigins(ALLOWED_ORIGIN)
+                .allowedMethods(ALLOWED_METHODS)
                 .allowedHeaders("*");
     }
-}
\ No newline at end of file
+
+    @Bean
+    public WebFluxConfigurer webFluxCorsConfigurer() {
+        return new WebFluxConfigurer() {
+            @Override
+            public void addCorsMappings(org.springframework.web.reactive.config.CorsRegistry registry) {
+                registry.addMapping("/**")
+                        .allowedOrigins(ALLOWED_ORIGIN)
+                        .allowedMethods(ALLOWED_METHODS)
+                        .allowedHeaders("*");
+            }
+        };
+    }
+}
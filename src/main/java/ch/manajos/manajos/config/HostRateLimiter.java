@@ -0,0 +1,39 @@
+package ch.manajos.manajos.config;
+
+import ch.manajos.manajos.utils.TokenBucket;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebClient filter holding every request until the token bucket of its host grants it.
+ * The buckets are shared by all the WebClients the filter is added to, so every service
+ * calling the same host draws from the same budget.
+ */
+@Component
+public class HostRateLimiter implements ExchangeFilterFunction {
+
+    private final RateLimitProperties properties;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String host = request.url().getHost();
+        RateLimitProperties.Limit limit = host != null ? properties.getHosts().get(host) : null;
+        if (!properties.isEnabled() || limit == null) {
+            return next.exchange(request);
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(host, key -> new TokenBucket(limit.getRate(), limit.getBurst()));
+        return bucket.acquire().then(Mono.defer(() -> next.exchange(request)));
+    }
+}
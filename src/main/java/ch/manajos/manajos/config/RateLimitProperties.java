@@ -0,0 +1,36 @@
+package ch.manajos.manajos.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request rate allowed towards each upstream host, bound from the "upstream.rate-limit" properties.
+ * Hosts without an entry are not limited.
+ */
+@Data
+@ConfigurationProperties(prefix = "upstream.rate-limit")
+public class RateLimitProperties {
+
+    // Turns the limiter on or off for every host
+    private boolean enabled = true;
+
+    private Map<String, Limit> hosts = new HashMap<>(Map.of(
+            "api.steampowered.com", new Limit(20, 20),
+            "store.steampowered.com", new Limit(10, 10),
+            "api.rawg.io", new Limit(5, 5)));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        // Sustained requests per second
+        private double rate;
+        // Requests allowed back to back after an idle period
+        private int burst;
+    }
+}
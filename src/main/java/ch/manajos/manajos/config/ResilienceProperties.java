@@ -0,0 +1,39 @@
+package ch.manajos.manajos.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retry, circuit breaker and hedging settings shared by every upstream host,
+ * bound from the "upstream.resilience" properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "upstream.resilience")
+public class ResilienceProperties {
+
+    private boolean enabled = true;
+
+    // Retries of a call failing with a transient error (I/O error, timeout, 429 or 5xx)
+    private int maxRetries = 2;
+    // First retry delay, doubled on every retry up to maxBackoff, with random jitter
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    // Time a single attempt may take to get a response once sent, a slower attempt fails as a transient error
+    private Duration attemptTimeout = Duration.ofSeconds(5);
+
+    // Failed calls in a row after which the breaker of a host opens
+    private int failureThreshold = 5;
+    // Time during which an open breaker rejects every call before letting a probe through
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    // Sends a duplicate request when a call is slower than the host's p95 latency
+    private boolean hedgeEnabled = true;
+    // Lower bound of the hedge delay, so a fast host is not flooded with duplicates
+    private Duration hedgeMinDelay = Duration.ofMillis(100);
+    // Latency samples needed before hedging starts
+    private int hedgeMinSamples = 20;
+    // Number of latest latencies the p95 is computed from
+    private int latencyWindow = 200;
+}
@@ -0,0 +1,12 @@
+package ch.manajos.manajos.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({CacheRefreshProperties.class, CacheRetentionProperties.class, RateLimitProperties.class,
+        ResilienceProperties.class})
+public class SchedulingConfig {
+}
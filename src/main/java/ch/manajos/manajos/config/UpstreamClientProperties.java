@@ -0,0 +1,50 @@
+package ch.manajos.manajos.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Connection pool, timeouts and buffer limits of each upstream HTTP client, bound from the
+ * "upstream.clients" properties, e.g. "upstream.clients.steam-store.max-connections=50".
+ */
+@Data
+@ConfigurationProperties(prefix = "upstream.clients")
+public class UpstreamClientProperties {
+
+    // Steam Web API, e.g. GetMostPlayedGames and GetPlayerSummaries
+    private Client steamApi = new Client("https://api.steampowered.com");
+    // Steam store API, e.g. appdetails and storesearch
+    private Client steamStore = new Client("https://store.steampowered.com/api");
+    private Client rawg = new Client("https://api.rawg.io/api");
+
+    @Data
+    public static class Client {
+        private String baseUrl;
+        // Connections kept open towards the host; further requests wait for a free one
+        private int maxConnections = 50;
+        // Time a request may wait for a free connection
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        // Idle connections are closed after this delay, before the server drops them
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        // Connections are renewed after this delay whatever their use
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private boolean keepAlive = true;
+        private Duration connectTimeout = Duration.ofSeconds(3);
+        // Time allowed between the request being sent and the response headers arriving
+        private Duration responseTimeout = Duration.ofSeconds(10);
+        // Sends Accept-Encoding: gzip and decompresses responses
+        private boolean compression = true;
+        // Largest response body decoded in memory
+        private DataSize maxInMemorySize = DataSize.ofMegabytes(4);
+
+        public Client() {
+        }
+
+        public Client(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+    }
+}
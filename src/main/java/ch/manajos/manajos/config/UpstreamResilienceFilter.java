@@ -0,0 +1,182 @@
+package ch.manajos.manajos.config;
+
+import ch.manajos.manajos.utils.CircuitBreaker;
+import ch.manajos.manajos.utils.LatencyTracker;
+import ch.manajos.manajos.utils.UpstreamUnavailableException;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient filter making upstream calls resilient, per host:
+ * - transient failures (I/O errors, timeouts, 429 and 5xx responses) are retried with jittered exponential backoff;
+ * - a circuit breaker fails calls fast while the host keeps failing;
+ * - a call slower than the host's p95 latency is hedged with a duplicate request, the first response wins.
+ * A call that still fails fails with an {@link UpstreamUnavailableException}, so callers can fall back
+ * to their last good snapshot. Other responses, e.g. 404, are passed through untouched.
+ * The {@link #attemptFilter()} must be registered after the rate limiter: it bounds each attempt with
+ * the attempt timeout and measures its latency once the rate limit token is granted.
+ */
+@Component
+public class UpstreamResilienceFilter implements ExchangeFilterFunction {
+
+    private static final String ATTEMPT_ATTRIBUTE = UpstreamResilienceFilter.class.getName() + ".attempt";
+
+    private final ResilienceProperties properties;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final ExchangeFilterFunction attemptFilter = this::filterAttempt;
+
+    public UpstreamResilienceFilter(ResilienceProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Inner filter timing a single attempt, to register after the rate limiter.
+     */
+    public ExchangeFilterFunction attemptFilter() {
+        return attemptFilter;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String host = request.url().getHost();
+        if (!properties.isEnabled() || host == null) {
+            return next.exchange(request);
+        }
+        HostState state = hosts.computeIfAbsent(host, key -> new HostState(properties));
+
+        return Mono.defer(() -> {
+            if (!state.breaker.tryAcquire()) {
+                return Mono.error(new UpstreamUnavailableException(host, "circuit breaker open"));
+            }
+            AtomicBoolean recorded = new AtomicBoolean();
+            return hedged(request, next, state)
+                    .retryWhen(Retry.backoff(properties.getMaxRetries(), properties.getInitialBackoff())
+                            .maxBackoff(properties.getMaxBackoff())
+                            .jitter(0.5)
+                            .filter(UpstreamResilienceFilter::isTransient)
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                    .doOnNext(response -> {
+                        recorded.set(true);
+                        state.breaker.onSuccess();
+                    })
+                    .onErrorMap(UpstreamResilienceFilter::isTransient, e -> {
+                        recorded.set(true);
+                        state.breaker.onFailure();
+                        return new UpstreamUnavailableException(host, e);
+                    })
+                    // Cancelled, empty or failed with a non-transient error: the call says nothing about
+                    // the host, but its permit must be released or a half-open breaker stays shut
+                    .doFinally(signal -> {
+                        if (!recorded.get()) {
+                            state.breaker.onCancel();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * One attempt, duplicated once the host's p95 latency has elapsed without a response.
+     * The hedge delay starts when the first attempt is actually sent, not while it waits for a rate limit token.
+     */
+    private Mono<ClientResponse> hedged(ClientRequest request, ExchangeFunction next, HostState state) {
+        return Mono.defer(() -> {
+            long p95 = state.latency.percentileNanos(properties.getHedgeMinSamples());
+            Attempt first = new Attempt(state);
+            Mono<ClientResponse> attempt = attempt(request, next, first);
+            if (!properties.isHedgeEnabled() || p95 < 0) {
+                return attempt;
+            }
+            Duration delay = Duration.ofNanos(Math.max(p95, properties.getHedgeMinDelay().toNanos()));
+            Mono<ClientResponse> hedge = first.sent.asMono()
+                    .then(Mono.delay(delay))
+                    .then(Mono.defer(() -> attempt(request, next, new Attempt(state))));
+            // The first response wins and cancels the other request
+            return Flux.merge(attempt, hedge).next();
+        });
+    }
+
+    private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, Attempt attempt) {
+        return next.exchange(ClientRequest.from(request).attribute(ATTEMPT_ATTRIBUTE, attempt).build())
+                .flatMap(response -> {
+                    if (isTransient(response.statusCode())) {
+                        // Release the connection before retrying
+                        return response.releaseBody()
+                                .then(Mono.<ClientResponse>error(new TransientStatusException(response.statusCode())));
+                    }
+                    return Mono.just(response);
+                });
+    }
+
+    /**
+     * Runs once the rate limiter let the attempt through: bounds it with the attempt timeout,
+     * so a slow response fails as a transient error, and records the latency of the response.
+     */
+    private Mono<ClientResponse> filterAttempt(ClientRequest request, ExchangeFunction next) {
+        Attempt attempt = (Attempt) request.attribute(ATTEMPT_ATTRIBUTE).orElse(null);
+        if (attempt == null) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            attempt.sent.tryEmitEmpty();
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .timeout(properties.getAttemptTimeout())
+                    .doOnNext(response -> {
+                        if (!isTransient(response.statusCode())) {
+                            attempt.state.latency.record(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    private static boolean isTransient(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == 429;
+    }
+
+    private static boolean isTransient(Throwable error) {
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof TransientStatusException;
+    }
+
+    private static final class HostState {
+        final CircuitBreaker breaker;
+        final LatencyTracker latency;
+
+        HostState(ResilienceProperties properties) {
+            this.breaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+            this.latency = new LatencyTracker(properties.getLatencyWindow(), 0.95);
+        }
+    }
+
+    private static final class Attempt {
+        final HostState state;
+        // Completes when the attempt got its rate limit token and is sent
+        final Sinks.Empty<Void> sent = Sinks.empty();
+
+        Attempt(HostState state) {
+            this.state = state;
+        }
+    }
+
+    private static final class TransientStatusException extends RuntimeException {
+        TransientStatusException(HttpStatusCode status) {
+            super("HTTP " + status.value());
+        }
+    }
+}
@@ -1,16 +1,91 @@
 package ch.manajos.manajos.config;
 
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One pooled WebClient per upstream host, configured from {@link UpstreamClientProperties},
+ * made resilient by the {@link UpstreamResilienceFilter} and rate limited by the {@link HostRateLimiter}. Inject them with their qualifier,
+ * e.g. {@code @Qualifier(WebClientConfig.STEAM_STORE) WebClient storeClient}.
+ */
 @Configuration
+@EnableConfigurationProperties(UpstreamClientProperties.class)
 public class WebClientConfig {
 
-	@Bean
-	public WebClient steamWebClient() {
-		return WebClient.builder()
-				.baseUrl("https://api.steampowered.com") // Steam API base URL
+	// Bean names of the clients
+	public static final String STEAM_API = "steamApiWebClient";
+	public static final String STEAM_STORE = "steamStoreWebClient";
+	public static final String RAWG = "rawgWebClient";
+
+	private final UpstreamClientProperties properties;
+	private final UpstreamResilienceFilter resilienceFilter;
+	private final HostRateLimiter hostRateLimiter;
+	private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+
+	public WebClientConfig(UpstreamClientProperties properties, UpstreamResilienceFilter resilienceFilter,
+						   HostRateLimiter hostRateLimiter) {
+		this.properties = properties;
+		this.resilienceFilter = resilienceFilter;
+		this.hostRateLimiter = hostRateLimiter;
+	}
+
+	@Bean(STEAM_API)
+	public WebClient steamApiWebClient(WebClient.Builder builder) {
+		return build("steam-api", properties.getSteamApi(), builder);
+	}
+
+	@Bean(STEAM_STORE)
+	public WebClient steamStoreWebClient(WebClient.Builder builder) {
+		return build("steam-store", properties.getSteamStore(), builder);
+	}
+
+	@Bean(RAWG)
+	public WebClient rawgWebClient(WebClient.Builder builder) {
+		return build("rawg", properties.getRawg(), builder);
+	}
+
+	@PreDestroy
+	public void closeConnections() {
+		connectionProviders.forEach(ConnectionProvider::dispose);
+	}
+
+	private WebClient build(String name, UpstreamClientProperties.Client client, WebClient.Builder builder) {
+		ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+				.maxConnections(client.getMaxConnections())
+				.pendingAcquireTimeout(client.getPendingAcquireTimeout())
+				.maxIdleTime(client.getMaxIdleTime())
+				.maxLifeTime(client.getMaxLifeTime())
+				.evictInBackground(client.getMaxIdleTime())
+				.build();
+		connectionProviders.add(connectionProvider);
+
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) client.getConnectTimeout().toMillis())
+				.option(ChannelOption.SO_KEEPALIVE, client.isKeepAlive())
+				.keepAlive(client.isKeepAlive())
+				.responseTimeout(client.getResponseTimeout())
+				.compress(client.isCompression());
+
+		// The builder is shared: clone it so that each client keeps its own connector and filters
+		return builder.clone()
+				.baseUrl(client.getBaseUrl())
+				.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) client.getMaxInMemorySize().toBytes()))
+				// Outermost first: every retry and hedged attempt takes its own rate limit token,
+				// then is timed and bounded by the attempt timeout once the token is granted
+				.filter(resilienceFilter)
+				.filter(hostRateLimiter)
+				.filter(resilienceFilter.attemptFilter())
 				.build();
 	}
-}
\ No newline at end of file
+}
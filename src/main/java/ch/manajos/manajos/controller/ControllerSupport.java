@@ -0,0 +1,140 @@
+package ch.manajos.manajos.controller;
+
+import ch.manajos.manajos.cache.CachedSnapshot;
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.dto.MonthlyGamesResponse;
+import ch.manajos.manajos.dto.PlayerCountFrame;
+import ch.manajos.manajos.dto.UpcomingGameResponse;
+import ch.manajos.manajos.services.SteamService;
+import ch.manajos.manajos.utils.BadRequestException;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Request handling shared by {@link SteamController} and {@link ReactiveSteamController},
+ * so that both variants of the API answer identically.
+ */
+final class ControllerSupport {
+
+    // Response header telling clients whether the payload comes from a stale snapshot
+    static final String CACHE_STALE_HEADER = "X-Cache-Stale";
+
+    // Names of the pre-serialized views
+    static final String TOP_GAMES_VIEW = "topGames";
+    static final String UPCOMING_RELEASES_VIEW = "upcomingReleases";
+
+    /**
+     * The web stack's conditional request check, e.g. WebRequest#checkNotModified.
+     */
+    @FunctionalInterface
+    interface NotModifiedCheck {
+        /**
+         * Set the ETag and Last-Modified headers, and the 304 status when the client copy is current.
+         * @return true if the client copy is current
+         */
+        boolean checkNotModified(String etag, long lastModifiedMillis);
+    }
+
+    private ControllerSupport() {
+    }
+
+    /**
+     * Peak history of a game, raw or downsampled depending on the buckets, resolution and mode parameters.
+     */
+    static List<?> peakHistory(SteamService steamService, Long appId, int days, Integer buckets,
+                               String resolution, String mode) {
+        if (buckets == null && resolution == null) {
+            return steamService.getPeakHistory(appId, days);
+        }
+        if ("lttb".equalsIgnoreCase(mode)) {
+            if (buckets == null) {
+                throw new BadRequestException("mode=lttb requires the buckets parameter");
+            }
+            if (buckets < 3) {
+                // Below 3 there is no middle bucket: only the first and last points would be left
+                throw new BadRequestException("mode=lttb requires at least 3 buckets");
+            }
+            return steamService.getPeakHistoryDownsampled(appId, days, buckets);
+        }
+        if (!"aggregate".equalsIgnoreCase(mode)) {
+            throw new BadRequestException("Unknown mode: " + mode);
+        }
+        Duration bucketWidth = resolution != null ? parseResolution(resolution) : null;
+        return steamService.getPeakHistoryBuckets(appId, days, buckets, bucketWidth);
+    }
+
+    /**
+     * Parse a bucket width such as "6h", "1d" or "PT30M".
+     */
+    private static Duration parseResolution(String resolution) {
+        try {
+            return DurationStyle.detectAndParse(resolution);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid resolution: " + resolution, e);
+        }
+    }
+
+    /**
+     * Answer a request from a cached snapshot, honouring If-None-Match and If-Modified-Since.
+     * The strong ETag is the snapshot generation, i.e. its write time, combined with the publication time
+     * of any live data overlaid on it, so a 304 is decided before the body is built or serialized and
+     * never hides a change of either. Clients may reuse the response for the remaining TTL of the snapshot;
+     * a stale snapshot gets max-age=0. Responses are flagged with the X-Cache-Stale header.
+     */
+    static <T> ResponseEntity<T> conditional(CachedSnapshot<?> snapshot, CacheRefreshProperties.Policy policy,
+                                             NotModifiedCheck notModified, Supplier<T> body) {
+        long remainingTtl = snapshot.stale() ? 0 : Math.max(0, policy.getTtl().toMillis() - snapshot.ageMillis());
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofMillis(remainingTtl)).mustRevalidate();
+        String version = Long.toHexString(snapshot.writtenAt());
+        if (snapshot.overlaidAt() != 0) {
+            version += "-" + Long.toHexString(snapshot.overlaidAt());
+        }
+        String etag = "\"" + version + "\"";
+        long lastModified = Math.max(snapshot.writtenAt(), snapshot.overlaidAt());
+
+        if (notModified.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .header(CACHE_STALE_HEADER, String.valueOf(snapshot.stale()))
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .header(CACHE_STALE_HEADER, String.valueOf(snapshot.stale()))
+                .body(body.get());
+    }
+
+    /**
+     * A live player count frame as a server-sent event named after the frame type, with the poll sequence as id.
+     */
+    static ServerSentEvent<PlayerCountFrame> toServerSentEvent(PlayerCountFrame frame) {
+        return ServerSentEvent.builder(frame)
+                .event(frame.getType())
+                .id(String.valueOf(frame.getSequence()))
+                .build();
+    }
+
+    /**
+     * Group games by release month, in chronological order. Games without a release date are left out.
+     */
+    static List<MonthlyGamesResponse> groupByMonth(List<UpcomingGameResponse> games) {
+        Map<YearMonth, List<UpcomingGameResponse>> gamesByMonth = games.stream()
+                .filter(game -> game.getReleaseDate() != null)
+                .collect(Collectors.groupingBy(game -> YearMonth.from(game.getReleaseDate()), TreeMap::new, Collectors.toList()));
+
+        List<MonthlyGamesResponse> result = new ArrayList<>(gamesByMonth.size());
+        gamesByMonth.forEach((month, monthGames) -> result.add(new MonthlyGamesResponse(
+                month.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH), month.getYear(), monthGames)));
+        return result;
+    }
+}
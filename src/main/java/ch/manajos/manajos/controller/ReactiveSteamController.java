@@ -0,0 +1,161 @@
+package ch.manajos.manajos.controller;
+
+import ch.manajos.manajos.cache.CachedSnapshot;
+import ch.manajos.manajos.cache.SerializedResponseCache;
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.dto.CacheStatsResponse;
+import ch.manajos.manajos.dto.GameDetailsResult;
+import ch.manajos.manajos.dto.PeakHistoryComparison;
+import ch.manajos.manajos.dto.PlayerCountFrame;
+import ch.manajos.manajos.dto.SteamGameDetails;
+import ch.manajos.manajos.dto.SteamUserResponse;
+import ch.manajos.manajos.dto.TopGamesEvent;
+import ch.manajos.manajos.services.CacheStatsService;
+import ch.manajos.manajos.services.LivePlayerCountService;
+import ch.manajos.manajos.services.RawgApiService;
+import ch.manajos.manajos.services.SteamService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of {@link SteamController}, served by WebFlux on Netty.
+ * Enabled with {@code spring.main.web-application-type=reactive}. Endpoints backed by upstream calls
+ * return the services' Mono pipelines, so a slow upstream holds no thread; the peak history and cache
+ * statistics endpoints only read in-memory indexes and answer directly.
+ */
+@RestController
+@RequestMapping("/api/steam")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSteamController {
+    private final SteamService steamService;
+    private final RawgApiService rawgApiService;
+    private final CacheStatsService cacheStatsService;
+    private final LivePlayerCountService livePlayerCountService;
+    private final SerializedResponseCache serializedResponses;
+    // TTL of each cache, which bounds how long clients may reuse a response
+    private final CacheRefreshProperties refreshProperties;
+
+    public ReactiveSteamController(SteamService steamService, RawgApiService rawgApiService, CacheStatsService cacheStatsService,
+                                   LivePlayerCountService livePlayerCountService, SerializedResponseCache serializedResponses,
+                                   CacheRefreshProperties refreshProperties) {
+        this.steamService = steamService;
+        this.rawgApiService = rawgApiService;
+        this.cacheStatsService = cacheStatsService;
+        this.livePlayerCountService = livePlayerCountService;
+        this.serializedResponses = serializedResponses;
+        this.refreshProperties = refreshProperties;
+    }
+
+    @GetMapping("/")
+    public String home() {
+        return "Backend is running! Use /api/steam endpoints";
+    }
+
+    @GetMapping(value = "/top-games", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> getTopGames(ServerWebExchange exchange) {
+        return steamService.getTopGamesSnapshotAsync()
+                .map(snapshot -> conditional(exchange, snapshot, refreshProperties.getTopGames(),
+                        () -> serializedResponses.get(ControllerSupport.TOP_GAMES_VIEW, snapshot.value(), games -> games)));
+    }
+
+    /**
+     * Same as {@link SteamController#streamTopGames()}.
+     */
+    @GetMapping(value = "/top-games/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TopGamesEvent> streamTopGames() {
+        return steamService.streamTopGames();
+    }
+
+    /**
+     * Same as {@link SteamController#livePlayerCounts()}.
+     */
+    @GetMapping(value = "/live/player-counts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PlayerCountFrame>> livePlayerCounts() {
+        return livePlayerCountService.subscribe().map(ControllerSupport::toServerSentEvent);
+    }
+
+    @GetMapping("/games/{appId}")
+    public Mono<ResponseEntity<SteamGameDetails>> getGameDetails(@PathVariable("appId") Long appId, ServerWebExchange exchange) {
+        return steamService.getGameDetailsSnapshotAsync(appId)
+                .map(snapshot -> conditional(exchange, snapshot, refreshProperties.getGameDetails(), snapshot::value));
+    }
+
+    /**
+     * Same as {@link SteamController#getGameDetailsBatch}.
+     */
+    @PostMapping("/games/batch")
+    public Mono<List<GameDetailsResult>> getGameDetailsBatch(@RequestBody List<Long> appIds) {
+        return steamService.getGameDetailsBatchAsync(appIds);
+    }
+
+    /**
+     * Same as {@link SteamController#getGameDetailsByIds}.
+     */
+    @GetMapping(value = "/games", params = "ids")
+    public Mono<List<GameDetailsResult>> getGameDetailsByIds(@RequestParam("ids") List<Long> appIds) {
+        return steamService.getGameDetailsBatchAsync(appIds);
+    }
+
+    @GetMapping("/users/{steamId64}")
+    public Mono<SteamUserResponse> getUserInfo(@PathVariable("steamId64") String steamId64) {
+        return steamService.getUserInfoAsync(steamId64);
+    }
+
+    /**
+     * Same as {@link SteamController#getPeakHistory}.
+     */
+    @GetMapping("/games/{appId}/peak-history")
+    public List<?> getPeakHistory(
+            @PathVariable("appId") Long appId,
+            @RequestParam(value = "days", defaultValue = "30") int days,
+            @RequestParam(value = "buckets", required = false) Integer buckets,
+            @RequestParam(value = "resolution", required = false) String resolution,
+            @RequestParam(value = "mode", defaultValue = "aggregate") String mode
+    ) {
+        return ControllerSupport.peakHistory(steamService, appId, days, buckets, resolution, mode);
+    }
+
+    /**
+     * Same as {@link SteamController#comparePeakHistory}.
+     */
+    @GetMapping("/peak-history")
+    public PeakHistoryComparison comparePeakHistory(
+            @RequestParam("appIds") List<Long> appIds,
+            @RequestParam(value = "days", defaultValue = "30") int days
+    ) {
+        return steamService.getPeakHistoryComparison(appIds, days);
+    }
+
+    @GetMapping(value = "/upcoming-releases", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> getUpcomingReleases(ServerWebExchange exchange) {
+        // Grouped and serialized once per upcoming games snapshot
+        return rawgApiService.getUpcomingGamesSnapshotAsync()
+                .map(snapshot -> conditional(exchange, snapshot, refreshProperties.getUpcomingGames(),
+                        () -> serializedResponses.get(ControllerSupport.UPCOMING_RELEASES_VIEW, snapshot.value(),
+                                ControllerSupport::groupByMonth)));
+    }
+
+    @GetMapping("/cache-stats")
+    public List<CacheStatsResponse> getCacheStats() {
+        return cacheStatsService.getCacheStats();
+    }
+
+    /**
+     * {@link ControllerSupport#conditional} backed by the exchange's conditional request check.
+     */
+    private static <T> ResponseEntity<T> conditional(ServerWebExchange exchange, CachedSnapshot<?> snapshot,
+                                                     CacheRefreshProperties.Policy policy, Supplier<T> body) {
+        return ControllerSupport.conditional(snapshot, policy,
+                (etag, lastModified) -> exchange.checkNotModified(etag, Instant.ofEpochMilli(lastModified)), body);
+    }
+}
\ No newline at end of file
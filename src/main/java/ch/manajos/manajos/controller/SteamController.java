@@ -1,32 +1,56 @@
 package ch.manajos.manajos.controller;
 
-import ch.manajos.manajos.dto.MonthlyGamesResponse;
+import ch.manajos.manajos.cache.CachedSnapshot;
+import ch.manajos.manajos.cache.SerializedResponseCache;
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.dto.CacheStatsResponse;
+import ch.manajos.manajos.dto.GameDetailsResult;
+import ch.manajos.manajos.dto.PeakHistoryComparison;
+import ch.manajos.manajos.dto.PlayerCountFrame;
 import ch.manajos.manajos.dto.SteamGameDetails;
 import ch.manajos.manajos.dto.SteamGameResponse;
 import ch.manajos.manajos.dto.SteamUserResponse;
+import ch.manajos.manajos.dto.TopGamesEvent;
 import ch.manajos.manajos.dto.UpcomingGameResponse;
+import ch.manajos.manajos.services.CacheStatsService;
+import ch.manajos.manajos.services.LivePlayerCountService;
 import ch.manajos.manajos.services.RawgApiService;
 import ch.manajos.manajos.services.SteamService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
-import java.io.File;
-import java.time.Month;
-import java.time.format.TextStyle;
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Thread-per-request variant of the API, served by Spring MVC on Tomcat, the default.
+ * See {@link ReactiveSteamController} for the non-blocking variant.
+ */
 @RestController
 @RequestMapping("/api/steam")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SteamController {
     private final SteamService steamService;
     private final RawgApiService rawgApiService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheStatsService cacheStatsService;
+    private final LivePlayerCountService livePlayerCountService;
+    private final SerializedResponseCache serializedResponses;
+    // TTL of each cache, which bounds how long clients may reuse a response
+    private final CacheRefreshProperties refreshProperties;
 
-    public SteamController(SteamService steamService, RawgApiService rawgApiService) {
+    public SteamController(SteamService steamService, RawgApiService rawgApiService, CacheStatsService cacheStatsService,
+                           LivePlayerCountService livePlayerCountService, SerializedResponseCache serializedResponses,
+                           CacheRefreshProperties refreshProperties) {
         this.steamService = steamService;
         this.rawgApiService = rawgApiService;
+        this.cacheStatsService = cacheStatsService;
+        this.livePlayerCountService = livePlayerCountService;
+        this.serializedResponses = serializedResponses;
+        this.refreshProperties = refreshProperties;
     }
 
     @GetMapping("/")
@@ -34,14 +58,58 @@ public class SteamController {
         return "Backend is running! Use /api/steam endpoints";
     }
 
-    @GetMapping("/top-games")
-    public List<SteamGameResponse> getTopGames() {
-        return steamService.getTopGames();
+    @GetMapping(value = "/top-games", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getTopGames(WebRequest request) {
+        CachedSnapshot<List<SteamGameResponse>> snapshot = steamService.getTopGamesSnapshot();
+        return ControllerSupport.conditional(snapshot, refreshProperties.getTopGames(), request::checkNotModified,
+                () -> serializedResponses.get(ControllerSupport.TOP_GAMES_VIEW, snapshot.value(), games -> games));
+    }
+
+    /**
+     * Streams the top games as NDJSON or server-sent events, without waiting for every lookup:
+     * a "ranks" event with the ranked list, then "update" events carrying the name, image or price
+     * of one game as they are resolved, then a "complete" event. A cached snapshot is streamed at once.
+     * Example: curl -H "Accept: application/x-ndjson" http://localhost:8080/api/steam/top-games/stream
+     */
+    @GetMapping(value = "/top-games/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TopGamesEvent> streamTopGames() {
+        return steamService.streamTopGames();
+    }
+
+    /**
+     * Streams live ranks and player counts as server-sent events, polled once per interval for all clients:
+     * a "snapshot" event with the latest state, then a "diff" event per poll that changed anything.
+     * Example: curl http://localhost:8080/api/steam/live/player-counts
+     */
+    @GetMapping(value = "/live/player-counts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PlayerCountFrame>> livePlayerCounts() {
+        return livePlayerCountService.subscribe().map(ControllerSupport::toServerSentEvent);
     }
 
     @GetMapping("/games/{appId}")
-    public SteamGameDetails getGameDetails(@PathVariable("appId") Long appId) {
-        return steamService.getGameDetails(appId);
+    public ResponseEntity<SteamGameDetails> getGameDetails(@PathVariable("appId") Long appId, WebRequest request) {
+        CachedSnapshot<SteamGameDetails> snapshot = steamService.getGameDetailsSnapshot(appId);
+        return ControllerSupport.conditional(snapshot, refreshProperties.getGameDetails(), request::checkNotModified,
+                snapshot::value);
+    }
+
+    /**
+     * Returns the details of several games in one response, in request order, with a status per game
+     * (ok, stale, not_found, unavailable or error) so one failing game does not fail the others.
+     * Example: curl -X POST -H "Content-Type: application/json" -d "[730,570]" http://localhost:8080/api/steam/games/batch
+     */
+    @PostMapping("/games/batch")
+    public List<GameDetailsResult> getGameDetailsBatch(@RequestBody List<Long> appIds) {
+        return steamService.getGameDetailsBatch(appIds);
+    }
+
+    /**
+     * Same as {@link #getGameDetailsBatch}, with the appIds in the query string.
+     * Example: GET /api/steam/games?ids=730,570
+     */
+    @GetMapping(value = "/games", params = "ids")
+    public List<GameDetailsResult> getGameDetailsByIds(@RequestParam("ids") List<Long> appIds) {
+        return steamService.getGameDetailsBatch(appIds);
     }
 
     @GetMapping("/users/{steamId64}")
@@ -51,54 +119,58 @@ public class SteamController {
 
     /**
      * Returns a list of (timestamp, peak) data points for the specified game,
-     * collected from the topGames cache files of the last N days (default 30).
+     * collected from the top games snapshots of the last N days (default 30).
      * Example: GET /api/steam/games/730/peak-history?days=30
+     *
+     * Optionally downsampled on the server:
+     * - buckets=N or resolution=6h (mode=aggregate, the default) returns per-bucket min/max/avg/last,
+     *   e.g. GET /api/steam/games/730/peak-history?days=365&resolution=1d
+     * - mode=lttb&buckets=N returns at most N shape-preserving data points,
+     *   e.g. GET /api/steam/games/730/peak-history?days=365&mode=lttb&buckets=200
      */
     @GetMapping("/games/{appId}/peak-history")
-    public List<SteamService.PeakDataPoint> getPeakHistory(
+    public List<?> getPeakHistory(
             @PathVariable("appId") Long appId,
-            @RequestParam(value = "days", defaultValue = "30") int days
+            @RequestParam(value = "days", defaultValue = "30") int days,
+            @RequestParam(value = "buckets", required = false) Integer buckets,
+            @RequestParam(value = "resolution", required = false) String resolution,
+            @RequestParam(value = "mode", defaultValue = "aggregate") String mode
     ) {
-        return steamService.getPeakHistory(appId, days);
+        return ControllerSupport.peakHistory(steamService, appId, days, buckets, resolution, mode);
     }
     
+    /**
+     * Returns the peak histories of several games over the last N days (default 30),
+     * aligned on shared snapshot timestamps and extracted in a single pass.
+     * Example: GET /api/steam/peak-history?appIds=730,570,578080&days=90
+     */
+    @GetMapping("/peak-history")
+    public PeakHistoryComparison comparePeakHistory(
+            @RequestParam("appIds") List<Long> appIds,
+            @RequestParam(value = "days", defaultValue = "30") int days
+    ) {
+        return steamService.getPeakHistoryComparison(appIds, days);
+    }
+
     /**
      * Returns upcoming game releases grouped by month for the next 12 months.
      * Example: GET /api/steam/upcoming-releases
      */
-    @GetMapping("/upcoming-releases")
-    public List<MonthlyGamesResponse> getUpcomingReleases() {
-        // Get all upcoming games
-        List<UpcomingGameResponse> allGames = rawgApiService.getUpcomingGames();
-        
-        // Group games by month and year
-        Map<String, List<UpcomingGameResponse>> gamesByMonth = allGames.stream()
-                .filter(game -> game.getReleaseDate() != null)
-                .collect(Collectors.groupingBy(game -> {
-                    Month month = game.getReleaseDate().getMonth();
-                    int year = game.getReleaseDate().getYear();
-                    return month.getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + year;
-                }));
-        
-        // Convert to list of MonthlyGamesResponse
-        List<MonthlyGamesResponse> result = new ArrayList<>();
-        for (Map.Entry<String, List<UpcomingGameResponse>> entry : gamesByMonth.entrySet()) {
-            String[] parts = entry.getKey().split(" ");
-            String month = parts[0];
-            int year = Integer.parseInt(parts[1]);
-            
-            result.add(new MonthlyGamesResponse(month, year, entry.getValue()));
-        }
-        
-        // Sort by year and month
-        result.sort(Comparator.comparing(MonthlyGamesResponse::getYear)
-                .thenComparing(response -> Month.valueOf(response.getMonth().toUpperCase())));
-        
-        return result;
+    @GetMapping(value = "/upcoming-releases", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getUpcomingReleases(WebRequest request) {
+        // Grouped and serialized once per upcoming games snapshot
+        CachedSnapshot<List<UpcomingGameResponse>> snapshot = rawgApiService.getUpcomingGamesSnapshot();
+        return ControllerSupport.conditional(snapshot, refreshProperties.getUpcomingGames(), request::checkNotModified,
+                () -> serializedResponses.get(ControllerSupport.UPCOMING_RELEASES_VIEW, snapshot.value(),
+                        ControllerSupport::groupByMonth));
     }
 
     /**
-     * DTO for returning a single (timestamp, peak) data point.
+     * Returns size and hit/miss statistics of the in-memory caches.
+     * Example: GET /api/steam/cache-stats
      */
-
-}
+    @GetMapping("/cache-stats")
+    public List<CacheStatsResponse> getCacheStats() {
+        return cacheStatsService.getCacheStats();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package ch.manajos.manajos.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one appId of a batch details request.
+ * Each id resolves on its own, so a batch can mix found, stale and failed games.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameDetailsResult {
+    // Served from a fresh snapshot, or fetched
+    public static final String OK = "ok";
+    // Served from a snapshot past its TTL, or from the last good snapshot while upstream is down
+    public static final String STALE = "stale";
+    // Steam has no details for the game
+    public static final String NOT_FOUND = "not_found";
+    // Upstream is down and no snapshot of the game exists
+    public static final String UNAVAILABLE = "unavailable";
+    // Any other failure, e.g. an unexpected upstream response
+    public static final String ERROR = "error";
+
+    @JsonProperty("appid")
+    private Long appId;
+    private String status;
+    // Null unless the status is ok or stale
+    private SteamGameDetails details;
+    // Reason of a failed status
+    private String error;
+}
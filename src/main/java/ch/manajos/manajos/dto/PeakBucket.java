@@ -0,0 +1,24 @@
+package ch.manajos.manajos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregated peak-player counts of one time bucket of the peak history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeakBucket {
+    // Bucket bounds in epoch milliseconds, start inclusive and end exclusive
+    private long start;
+    private long end;
+    // Number of snapshots in the bucket
+    private int count;
+    private int min;
+    private int max;
+    private double avg;
+    // Peak of the most recent snapshot in the bucket
+    private int last;
+}
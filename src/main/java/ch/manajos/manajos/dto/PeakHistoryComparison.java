@@ -0,0 +1,21 @@
+package ch.manajos.manajos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Peak histories of several games aligned on the snapshot timestamps they share.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeakHistoryComparison {
+    // Snapshot timestamps in ascending order
+    private List<Long> timestamps;
+    // Peaks per appId, index-aligned with timestamps; null where the game was not in that snapshot
+    private Map<Long, List<Integer>> series;
+}
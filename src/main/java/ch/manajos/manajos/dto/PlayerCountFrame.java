@@ -0,0 +1,41 @@
+package ch.manajos.manajos.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One frame of the live player count channel.
+ * A "snapshot" frame holds every ranked game and replaces the client's state; a "diff" frame holds
+ * only the games whose rank or player count changed since the previous poll, and the games that left the chart.
+ * A client that fell behind receives a new snapshot frame instead of the diffs it missed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayerCountFrame {
+    public static final String SNAPSHOT = "snapshot";
+    public static final String DIFF = "diff";
+
+    private String type;
+    // Number of the poll the frame describes; consecutive diffs have consecutive numbers
+    private long sequence;
+    // Time of the poll, in epoch milliseconds
+    private long timestamp;
+    private List<Entry> changed;
+    private List<Long> removed;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        @JsonProperty("appid")
+        private long appId;
+        private int rank;
+        @JsonProperty("peak_in_game")
+        private int playerCount;
+    }
+}
@@ -33,6 +33,22 @@ public class SteamGameDetails {
     @JsonProperty("screenshots")
     private List<Screenshot> screenshots;
 
+    /**
+     * @return A shallow copy of these details with another player count; cached details are never modified
+     */
+    public SteamGameDetails withPlayerCount(Integer playerCount) {
+        SteamGameDetails copy = new SteamGameDetails();
+        copy.setType(type);
+        copy.setName(name);
+        copy.setSteamAppId(steamAppId);
+        copy.setShortDescription(shortDescription);
+        copy.setHeaderImage(headerImage);
+        copy.setPlayerCount(playerCount);
+        copy.setPriceOverview(priceOverview);
+        copy.setScreenshots(screenshots);
+        return copy;
+    }
+
     @Data
     public static class PriceOverview {
         @JsonProperty("currency")
@@ -0,0 +1,66 @@
+package ch.manajos.manajos.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One event of the streamed top games: the ranked list, then an update per resolved field, then completion.
+ * Only the fields of the event type are serialized.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TopGamesEvent {
+    public static final String RANKS = "ranks";
+    public static final String UPDATE = "update";
+    public static final String COMPLETE = "complete";
+
+    private String type;
+    // ranks: the ranked games, replacing the client's list
+    private List<SteamGameResponse> games;
+    // update: the game the resolved fields belong to
+    @JsonProperty("appid")
+    private Long appId;
+    private String name;
+    private String image;
+    private String price;
+    // complete: write time of the snapshot the stream ends on, and whether it is stale
+    private Long writtenAt;
+    private Boolean stale;
+
+    public static TopGamesEvent ranks(List<SteamGameResponse> games) {
+        TopGamesEvent event = new TopGamesEvent();
+        event.setType(RANKS);
+        event.setGames(games);
+        return event;
+    }
+
+    public static TopGamesEvent details(Long appId, String name, String image) {
+        TopGamesEvent event = new TopGamesEvent();
+        event.setType(UPDATE);
+        event.setAppId(appId);
+        event.setName(name);
+        event.setImage(image);
+        return event;
+    }
+
+    public static TopGamesEvent price(Long appId, String price) {
+        TopGamesEvent event = new TopGamesEvent();
+        event.setType(UPDATE);
+        event.setAppId(appId);
+        event.setPrice(price);
+        return event;
+    }
+
+    public static TopGamesEvent complete(long writtenAt, boolean stale) {
+        TopGamesEvent event = new TopGamesEvent();
+        event.setType(COMPLETE);
+        event.setWrittenAt(writtenAt);
+        event.setStale(stale);
+        return event;
+    }
+}
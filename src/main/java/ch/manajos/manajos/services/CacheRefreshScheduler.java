@@ -0,0 +1,79 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.config.CacheRetentionProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Renews the Steam and RAWG file caches in the background before they expire,
+ * so that requests are served from the last good snapshot and never wait on upstream.
+ * Every cache runs on its own interval with a random jitter added to each run.
+ * Also runs the compaction of the game details snapshots.
+ */
+@Service
+public class CacheRefreshScheduler {
+
+    private final TaskScheduler taskScheduler;
+    private final SteamService steamService;
+    private final RawgApiService rawgApiService;
+    private final CacheRefreshProperties properties;
+    private final CacheRetentionProperties retentionProperties;
+
+    public CacheRefreshScheduler(TaskScheduler taskScheduler, SteamService steamService,
+                                 RawgApiService rawgApiService, CacheRefreshProperties properties,
+                                 CacheRetentionProperties retentionProperties) {
+        this.taskScheduler = taskScheduler;
+        this.steamService = steamService;
+        this.rawgApiService = rawgApiService;
+        this.properties = properties;
+        this.retentionProperties = retentionProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (retentionProperties.isEnabled()) {
+            taskScheduler.scheduleWithFixedDelay(this::compact, retentionProperties.getInterval());
+        }
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // The first run only waits for the jitter, so caches that went stale while the app was down are renewed right away
+        schedule("topGames", properties.getTopGames(), steamService::refreshTopGamesIfDue, false);
+        schedule("gameDetails", properties.getGameDetails(), steamService::refreshDueGameDetails, false);
+        schedule("upcomingGames", properties.getUpcomingGames(), rawgApiService::refreshUpcomingGamesIfDue, false);
+    }
+
+    private void schedule(String name, CacheRefreshProperties.Policy policy, Supplier<Mono<Void>> refresh, boolean afterInterval) {
+        long delay = ThreadLocalRandom.current().nextLong(policy.getJitter().toMillis() + 1);
+        if (afterInterval) {
+            delay += policy.getInterval().toMillis();
+        }
+        taskScheduler.schedule(() -> refresh.get()
+                .onErrorResume(e -> {
+                    System.err.println("Background refresh of " + name + " failed: " + e.getMessage());
+                    return Mono.empty();
+                })
+                // Reschedule once the run is over, whatever its outcome
+                .doFinally(signal -> schedule(name, policy, refresh, true))
+                .subscribe(), Instant.now().plusMillis(delay));
+    }
+
+    private void compact() {
+        try {
+            int deleted = steamService.compactGameDetails();
+            if (deleted > 0) {
+                System.err.println("Compacted game details cache: " + deleted + " snapshots deleted");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Compaction of gameDetails failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package ch.manajos.manajos.services;
 
+import ch.manajos.manajos.config.WebClientConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -10,7 +12,7 @@ public class GlobalService {
     private final WebClient webClient;
 
     @Autowired
-    public GlobalService(WebClient webClient) {
+    public GlobalService(@Qualifier(WebClientConfig.STEAM_API) WebClient webClient) {
         this.webClient = webClient;
     }
 
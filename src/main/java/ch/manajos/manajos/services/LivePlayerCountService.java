@@ -0,0 +1,126 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.dto.PlayerCountFrame;
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Live rank and player count channel.
+ * A single poller calls GetMostPlayedGames once per interval, whatever the number of subscribers,
+ * and broadcasts the changes since the previous poll. It runs while at least one client is subscribed.
+ * Each subscriber first receives the latest known state as a snapshot frame, then the diff frames.
+ * A slow subscriber has its own bounded buffer: once full, its oldest states are dropped, and the next
+ * state it receives is sent as a snapshot frame instead of a diff, so its view never diverges.
+ */
+@Service
+public class LivePlayerCountService {
+
+    private final SteamService steamService;
+    private final Flux<State> states;
+    private final int bufferSize;
+
+    // State after the latest poll, only written by the poller
+    private volatile State current = new State(0, 0, Collections.emptyMap(), Collections.emptyList(), Collections.emptyList());
+
+    public LivePlayerCountService(SteamService steamService,
+                                  @Value("${steam.live.poll-interval:30s}") String pollInterval,
+                                  @Value("${steam.live.idle-grace:1m}") String idleGrace,
+                                  @Value("${steam.live.buffer-size:16}") int bufferSize) {
+        this.steamService = steamService;
+        this.bufferSize = bufferSize;
+        this.states = Flux.interval(Duration.ZERO, DurationStyle.detectAndParse(pollInterval))
+                // A poll slower than the interval skips ticks instead of queueing them
+                .onBackpressureDrop()
+                .concatMap(tick -> steamService.fetchRankedGames()
+                        .onErrorResume(e -> {
+                            System.err.println("Live player count poll failed: " + e.getMessage());
+                            return Mono.empty();
+                        }), 0)
+                .mapNotNull(this::advance)
+                // One poller shared by every subscriber, stopped once the last one has been gone for the grace period.
+                // A new subscriber atomically gets the latest state, then every later one: no state is missed or repeated
+                .replay(1)
+                .refCount(1, DurationStyle.detectAndParse(idleGrace));
+    }
+
+    /**
+     * @return The latest state as a snapshot frame once known, then a diff frame per poll with changes;
+     * a snapshot frame again whenever states were dropped because the subscriber fell behind
+     */
+    public Flux<PlayerCountFrame> subscribe() {
+        return Flux.defer(() -> {
+            // Sequence of the last state sent to this subscriber
+            long[] sent = {-1};
+            return states
+                    .onBackpressureBuffer(bufferSize, state -> {}, BufferOverflowStrategy.DROP_OLDEST)
+                    .map(state -> {
+                        boolean contiguous = sent[0] >= 0 && state.sequence() == sent[0] + 1;
+                        sent[0] = state.sequence();
+                        return contiguous ? state.diff() : state.snapshot();
+                    });
+        });
+    }
+
+    /**
+     * Replace the current state with the result of a poll.
+     * @return The new state, or null if nothing changed
+     */
+    private State advance(List<SteamGameResponse> games) {
+        State previous = current;
+        Map<Long, PlayerCountFrame.Entry> next = new LinkedHashMap<>();
+        List<PlayerCountFrame.Entry> changed = new ArrayList<>();
+        for (SteamGameResponse game : games) {
+            if (game.getAppId() == null) {
+                continue;
+            }
+            PlayerCountFrame.Entry entry = new PlayerCountFrame.Entry(game.getAppId(),
+                    Objects.requireNonNullElse(game.getRank(), 0), Objects.requireNonNullElse(game.getPlayerCount(), 0));
+            next.put(entry.getAppId(), entry);
+            if (!entry.equals(previous.entries().get(entry.getAppId()))) {
+                changed.add(entry);
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        for (Long appId : previous.entries().keySet()) {
+            if (!next.containsKey(appId)) {
+                removed.add(appId);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        State state = new State(previous.sequence() + 1, System.currentTimeMillis(),
+                Collections.unmodifiableMap(next), changed, removed);
+        current = state;
+        return state;
+    }
+
+    /**
+     * Immutable result of a poll: the full state and its changes since the previous one.
+     */
+    private record State(long sequence, long polledAt, Map<Long, PlayerCountFrame.Entry> entries,
+                         List<PlayerCountFrame.Entry> changed, List<Long> removed) {
+
+        PlayerCountFrame snapshot() {
+            return new PlayerCountFrame(PlayerCountFrame.SNAPSHOT, sequence, polledAt,
+                    new ArrayList<>(entries.values()), Collections.emptyList());
+        }
+
+        PlayerCountFrame diff() {
+            return new PlayerCountFrame(PlayerCountFrame.DIFF, sequence, polledAt, changed, removed);
+        }
+    }
+}
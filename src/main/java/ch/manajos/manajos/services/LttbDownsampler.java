@@ -0,0 +1,175 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.cache.PeakHistoryIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a timestamp-ordered stream of peak points.
+ * Keeps the first and last points and, for each of the (threshold - 2) middle buckets, the point
+ * forming the largest triangle with the previously kept point and the average of the next bucket.
+ * A threshold below 3 leaves no middle bucket: only the first point, and the last one for a threshold of 2, are kept.
+ * Works in a single pass: only the bucket being decided and the bucket being filled are buffered.
+ */
+class LttbDownsampler implements PeakHistoryIndex.PointVisitor {
+
+    private final int total;
+    private final int threshold;
+    private final boolean keepAll;
+    private final int middleBuckets;
+    private final double every;
+    private final List<SteamService.PeakDataPoint> result;
+
+    // Number of points seen so far
+    private int index;
+    // Last kept point
+    private long keptTimestamp;
+    private int keptPeak;
+
+    // Middle bucket being filled, and the index at which it ends
+    private int bucket;
+    private int bucketEnd;
+    private long[] nextTimestamps;
+    private int[] nextPeaks;
+    private int nextSize;
+
+    // Previous middle bucket, waiting for the average of the next one to pick its point
+    private long[] currentTimestamps;
+    private int[] currentPeaks;
+    private int currentSize;
+
+    /**
+     * @param total The exact number of points that will be visited
+     * @param threshold The number of points to keep
+     */
+    LttbDownsampler(int total, int threshold) {
+        this.total = total;
+        this.threshold = threshold;
+        this.keepAll = threshold >= total;
+        if (keepAll || threshold < 3) {
+            // Nothing to downsample, or no middle bucket to pick points from
+            this.middleBuckets = 0;
+            this.every = 0;
+            this.result = new ArrayList<>(Math.min(total, Math.max(threshold, 0)));
+            return;
+        }
+        this.middleBuckets = threshold - 2;
+        this.every = (double) (total - 2) / middleBuckets;
+        this.result = new ArrayList<>(threshold);
+        int capacity = (int) Math.ceil(every) + 1;
+        this.nextTimestamps = new long[capacity];
+        this.nextPeaks = new int[capacity];
+        this.currentTimestamps = new long[capacity];
+        this.currentPeaks = new int[capacity];
+        this.bucketEnd = bucketEnd(0);
+    }
+
+    @Override
+    public void visit(long timestamp, int peak) {
+        if (index >= total) {
+            // Points appended after the count was taken are ignored
+            return;
+        }
+        int position = index++;
+        if (keepAll) {
+            result.add(new SteamService.PeakDataPoint(timestamp, peak));
+            return;
+        }
+        if (middleBuckets == 0) {
+            if (position == 0 || (position == total - 1 && threshold == 2)) {
+                result.add(new SteamService.PeakDataPoint(timestamp, peak));
+            }
+            return;
+        }
+        if (position == 0) {
+            keep(timestamp, peak);
+            return;
+        }
+
+        if (position >= bucketEnd || position == total - 1) {
+            completeBucket();
+        }
+
+        if (position == total - 1) {
+            // The last middle bucket is decided against the last point itself
+            selectFromCurrent(timestamp, peak);
+            keep(timestamp, peak);
+            return;
+        }
+        nextTimestamps[nextSize] = timestamp;
+        nextPeaks[nextSize] = peak;
+        nextSize++;
+    }
+
+    List<SteamService.PeakDataPoint> finish() {
+        return result;
+    }
+
+    /**
+     * The bucket being filled is complete: decide the previous bucket against its average,
+     * then make it the bucket waiting for a decision.
+     */
+    private void completeBucket() {
+        if (nextSize == 0) {
+            return;
+        }
+        if (currentSize > 0) {
+            double averageTimestamp = 0;
+            double averagePeak = 0;
+            for (int i = 0; i < nextSize; i++) {
+                averageTimestamp += nextTimestamps[i];
+                averagePeak += nextPeaks[i];
+            }
+            selectFromCurrent(averageTimestamp / nextSize, averagePeak / nextSize);
+        }
+
+        long[] timestamps = currentTimestamps;
+        int[] peaks = currentPeaks;
+        currentTimestamps = nextTimestamps;
+        currentPeaks = nextPeaks;
+        currentSize = nextSize;
+        nextTimestamps = timestamps;
+        nextPeaks = peaks;
+        nextSize = 0;
+
+        bucket++;
+        bucketEnd = bucketEnd(bucket);
+    }
+
+    /**
+     * Index at which a middle bucket ends. The last one always ends right before the last point,
+     * whatever the floating-point rounding of the bucket width.
+     */
+    private int bucketEnd(int middleBucket) {
+        if (middleBucket >= middleBuckets - 1) {
+            return total - 1;
+        }
+        return (int) Math.floor((middleBucket + 1) * every) + 1;
+    }
+
+    private void selectFromCurrent(double nextTimestamp, double nextPeak) {
+        if (currentSize == 0) {
+            return;
+        }
+        int selected = 0;
+        double maxArea = -1;
+        for (int i = 0; i < currentSize; i++) {
+            // Twice the triangle area; the factor does not change the maximum
+            double area = Math.abs((keptTimestamp - nextTimestamp) * ((double) currentPeaks[i] - keptPeak)
+                    - ((double) keptTimestamp - currentTimestamps[i]) * (nextPeak - keptPeak));
+            if (area > maxArea) {
+                maxArea = area;
+                selected = i;
+            }
+        }
+        keep(currentTimestamps[selected], currentPeaks[selected]);
+        currentSize = 0;
+    }
+
+    private void keep(long timestamp, int peak) {
+        keptTimestamp = timestamp;
+        keptPeak = peak;
+        result.add(new SteamService.PeakDataPoint(timestamp, peak));
+    }
+}
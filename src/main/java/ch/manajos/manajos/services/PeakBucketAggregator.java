@@ -0,0 +1,68 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.cache.PeakHistoryIndex;
+import ch.manajos.manajos.dto.PeakBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates a timestamp-ordered stream of peak points into fixed-width time buckets
+ * (min/max/avg/last), in a single pass. Only buckets holding at least one point are emitted.
+ */
+class PeakBucketAggregator implements PeakHistoryIndex.PointVisitor {
+
+    private final long origin;
+    private final long width;
+    private final List<PeakBucket> buckets = new ArrayList<>();
+
+    private long bucketStart;
+    private int count;
+    private int min;
+    private int max;
+    private long sum;
+    private int last;
+
+    /**
+     * @param origin Any bucket boundary; every bucket starts at origin + k * width
+     * @param width The bucket width in milliseconds
+     */
+    PeakBucketAggregator(long origin, long width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
+        }
+        this.origin = origin;
+        this.width = width;
+    }
+
+    @Override
+    public void visit(long timestamp, int peak) {
+        long start = origin + Math.floorDiv(timestamp - origin, width) * width;
+        if (count > 0 && start != bucketStart) {
+            flush();
+        }
+        if (count == 0) {
+            bucketStart = start;
+            min = peak;
+            max = peak;
+            sum = 0;
+        }
+        count++;
+        min = Math.min(min, peak);
+        max = Math.max(max, peak);
+        sum += peak;
+        last = peak;
+    }
+
+    List<PeakBucket> finish() {
+        if (count > 0) {
+            flush();
+        }
+        return buckets;
+    }
+
+    private void flush() {
+        buckets.add(new PeakBucket(bucketStart, bucketStart + width, count, min, max, (double) sum / count, last));
+        count = 0;
+    }
+}
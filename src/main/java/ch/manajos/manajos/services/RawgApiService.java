@@ -1,49 +1,89 @@
 package ch.manajos.manajos.services;
 
+import ch.manajos.manajos.cache.CacheCodec;
+import ch.manajos.manajos.cache.CachedSnapshot;
+import ch.manajos.manajos.cache.SteamAppIdCache;
+import ch.manajos.manajos.config.CacheConfig;
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.config.WebClientConfig;
 import ch.manajos.manajos.dto.UpcomingGameResponse;
+import ch.manajos.manajos.utils.SingleFlight;
+import ch.manajos.manajos.utils.UpstreamUnavailableException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class RawgApiService {
 
     private final WebClient webClient;
     private final WebClient steamWebClient;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SteamPriceBatcher priceBatcher;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final CacheRefreshProperties refreshProperties;
+    // In-memory tier in front of the JSON file
+    private final CacheManager cacheManager;
+    // Encoding of the cache file
+    private final CacheCodec cacheCodec;
+    // Steam AppID matched to each RAWG game, so only new games are searched
+    private final SteamAppIdCache steamAppIdCache;
     
     @Value("${rawg.api.key}")
     private String rawgApiKey;
     
+    // Games per RAWG page, 40 is the largest page RAWG serves
+    @Value("${rawg.upcoming.page-size:40}")
+    private int pageSize;
+    
+    // Maximum number of pages fetched per refresh
+    @Value("${rawg.upcoming.max-pages:10}")
+    private int maxPages;
+    
+    // Maximum number of pages in flight after the first one
+    @Value("${rawg.upcoming.concurrency:4}")
+    private int pageConcurrency;
+    
+    // Maximum number of Steam store searches in flight; their pace is set by the rate limiter
+    @Value("${rawg.price-lookup.concurrency:16}")
+    private int priceLookupConcurrency;
+    
     // Cache directory for upcoming games
     private static final String UPCOMING_GAMES_CACHE_DIR = "src/main/resources/cache/upcomingGames/";
-    // Cache duration: 12 hours
-    private static final long UPCOMING_GAMES_CACHE_DURATION = 43200000L;
+    private static final String UPCOMING_GAMES_KEY = "upcomingGames";
+    // Upstream named in the errors raised when it is down and no snapshot can be served
+    private static final String UPSTREAM = "RAWG";
+    // Name of the cache file without its codec extension
+    private static final String UPCOMING_GAMES_FILE = "upcomingGames";
 
-    public RawgApiService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder
-                .baseUrl("https://api.rawg.io/api")
-                .build();
-                
-        this.steamWebClient = WebClient.builder()
-                .baseUrl("https://store.steampowered.com/api")
-                .build();
+    public RawgApiService(@Qualifier(WebClientConfig.RAWG) WebClient webClient,
+                          @Qualifier(WebClientConfig.STEAM_STORE) WebClient steamWebClient, SteamPriceBatcher priceBatcher,
+                          CacheRefreshProperties refreshProperties, CacheManager cacheManager, CacheCodec cacheCodec,
+                          SteamAppIdCache steamAppIdCache) {
+        this.webClient = webClient;
+        this.steamWebClient = steamWebClient;
+        this.priceBatcher = priceBatcher;
+        this.steamAppIdCache = steamAppIdCache;
+        this.cacheCodec = cacheCodec;
+        this.refreshProperties = refreshProperties;
+        this.cacheManager = cacheManager;
     }
     
     /**
@@ -51,120 +91,164 @@ public class RawgApiService {
      * @return List of upcoming games
      */
     public List<UpcomingGameResponse> getUpcomingGames() {
-        // Try to load cached data first
-        List<UpcomingGameResponse> cachedGames = loadUpcomingGamesCache();
-        if (cachedGames != null) {
-            return cachedGames;
-        }
-        
-        // Calculate date range (today to 12 months from now)
-        LocalDate today = LocalDate.now();
-        LocalDate endDate = today.plusMonths(12);
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        String dateRange = today.format(formatter) + "," + endDate.format(formatter);
-        
-        List<UpcomingGameResponse> allGames = new ArrayList<>();
-        String nextPageUrl = null;
-        
-        try {
-            // First page
-            JsonNode response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/games")
-                            .queryParam("key", rawgApiKey)
-                            .queryParam("dates", dateRange)
-                            .queryParam("ordering", "released")
-                            .queryParam("page_size", 40)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block();
-            
-            if (response != null) {
-                // Process results
-                JsonNode results = response.get("results");
-                if (results != null && results.isArray()) {
-                    for (JsonNode game : results) {
-                        allGames.add(parseGameResponse(game));
-                    }
-                }
-                
-                // Check if there's a next page
-                if (response.has("next") && !response.get("next").isNull()) {
-                    nextPageUrl = response.get("next").asText();
-                }
-                
-                // Fetch up to 5 pages (200 games) to avoid rate limiting
-                int pageCount = 1;
-                while (nextPageUrl != null && pageCount < 5) {
-                    String finalUrl = nextPageUrl;
-                    response = webClient.get()
-                            .uri(finalUrl)
-                            .retrieve()
-                            .bodyToMono(JsonNode.class)
-                            .block();
-                    
-                    if (response != null) {
-                        // Process results
-                        results = response.get("results");
-                        if (results != null && results.isArray()) {
-                            for (JsonNode game : results) {
-                                allGames.add(parseGameResponse(game));
-                            }
-                        }
-                        
-                        // Check if there's a next page
-                        if (response.has("next") && !response.get("next").isNull()) {
-                            nextPageUrl = response.get("next").asText();
-                        } else {
-                            nextPageUrl = null;
-                        }
-                    } else {
-                        nextPageUrl = null;
+        return getUpcomingGamesSnapshot().value();
+    }
+    
+    /**
+     * Blocking variant of {@link #getUpcomingGamesSnapshotAsync()}.
+     */
+    public CachedSnapshot<List<UpcomingGameResponse>> getUpcomingGamesSnapshot() {
+        return getUpcomingGamesSnapshotAsync().block();
+    }
+    
+    /**
+     * Get the current upcoming games snapshot.
+     * A stale snapshot is returned immediately and renewed in the background; the caller only
+     * waits for RAWG when no snapshot within the max-stale bound exists.
+     * If RAWG is down the last snapshot is served as stale whatever its age; any other error is propagated.
+     * Never blocks the subscribing thread.
+     * @return The snapshot, holding an empty list if nothing could be fetched
+     */
+    public Mono<CachedSnapshot<List<UpcomingGameResponse>>> getUpcomingGamesSnapshotAsync() {
+        // Try to load cached data first; past its TTL the snapshot is still served, flagged as stale, until the max-stale bound
+        return readUpcomingGamesCacheAsync()
+                .mapNotNull(snapshot -> refreshProperties.getUpcomingGames().evaluate(snapshot))
+                .doOnNext(cached -> {
+                    if (cached.stale()) {
+                        singleFlight.executeInBackground(UPCOMING_GAMES_KEY, this::fetchAndSaveUpcomingGames);
                     }
-                    
-                    pageCount++;
-                }
+                })
+                // Concurrent misses share a single refresh
+                .switchIfEmpty(Mono.defer(() -> singleFlight.execute(UPCOMING_GAMES_KEY, this::refreshUpcomingGames)))
+                .onErrorResume(e -> CachedSnapshot.lastGood(readUpcomingGamesCacheAsync(), e, UPSTREAM))
+                // Nothing to serve: the empty placeholder is flagged stale so clients do not cache it for a full TTL
+                .switchIfEmpty(Mono.fromSupplier(() -> new CachedSnapshot<>(Collections.emptyList(), System.currentTimeMillis(), true)));
+    }
+    
+    /**
+     * Renew the upcoming games snapshot if it would expire before the next background run.
+     */
+    public Mono<Void> refreshUpcomingGamesIfDue() {
+        return Mono.defer(() -> {
+            CachedSnapshot<List<UpcomingGameResponse>> latest = readUpcomingGamesCache();
+            if (latest != null && !refreshProperties.getUpcomingGames().isDue(latest.ageMillis())) {
+                return Mono.<Void>empty();
             }
+            return singleFlight.execute(UPCOMING_GAMES_KEY, this::fetchAndSaveUpcomingGames).then();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    private Mono<CachedSnapshot<List<UpcomingGameResponse>>> refreshUpcomingGames() {
+        // A refresh may have completed while this one was queued
+        return readUpcomingGamesCacheAsync()
+                .mapNotNull(snapshot -> refreshProperties.getUpcomingGames().evaluate(snapshot))
+                .filter(cached -> !cached.stale())
+                .switchIfEmpty(Mono.defer(this::fetchAndSaveUpcomingGames));
+    }
+    
+    /**
+     * Fetch upcoming games from RAWG, enrich them with Steam prices and save them to cache.
+     * Errors are propagated so that a failed refresh never replaces the last good snapshot.
+     */
+    private Mono<CachedSnapshot<List<UpcomingGameResponse>>> fetchAndSaveUpcomingGames() {
+        return Mono.defer(() -> {
+            // Calculate date range (today to 12 months from now)
+            LocalDate today = LocalDate.now();
+            LocalDate endDate = today.plusMonths(12);
             
-            // Enrich with price information
-            enrichWithPrices(allGames);
-            
-            // Save to cache
-            saveUpcomingGamesCache(allGames);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+            String dateRange = today.format(formatter) + "," + endDate.format(formatter);
             
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Collections.emptyList();
+            // The first page reports the total count, which gives the number of pages to fetch
+            return fetchUpcomingGamesPage(dateRange, 1)
+                    .flatMap(firstPage -> {
+                        // Only a page reporting zero games may lead to an empty snapshot
+                        if (!firstPage.path("count").isInt()) {
+                            return Mono.error(new UpstreamUnavailableException(UPSTREAM, "no game count in the first page"));
+                        }
+                        int total = firstPage.path("count").asInt();
+                        int pages = Math.min(maxPages, (total + pageSize - 1) / pageSize);
+                        
+                        // The other pages are fetched concurrently and merged back in page order, i.e. in release order
+                        return Flux.range(2, Math.max(0, pages - 1))
+                                .flatMapSequential(page -> fetchUpcomingGamesPage(dateRange, page), pageConcurrency)
+                                .startWith(firstPage)
+                                .collect(ArrayList<UpcomingGameResponse>::new, (games, page) -> addResults(page, games));
+                    })
+                    // Enrich with price information
+                    .flatMap(games -> enrichWithPrices(games).thenReturn(games))
+                    // Save to cache
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(this::saveUpcomingGamesCache)
+                    .doOnError(Throwable::printStackTrace);
+        });
+    }
+    
+    private Mono<JsonNode> fetchUpcomingGamesPage(String dateRange, int page) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/games")
+                        .queryParam("key", rawgApiKey)
+                        .queryParam("dates", dateRange)
+                        .queryParam("ordering", "released")
+                        .queryParam("page", page)
+                        .queryParam("page_size", pageSize)
+                        .build())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                // A missing page must fail the refresh rather than save a truncated list
+                .switchIfEmpty(Mono.error(() -> new UpstreamUnavailableException(UPSTREAM, "empty response for page " + page)));
+    }
+    
+    private void addResults(JsonNode page, List<UpcomingGameResponse> games) {
+        JsonNode results = page.get("results");
+        if (results != null && results.isArray()) {
+            for (JsonNode game : results) {
+                games.add(parseGameResponse(game));
+            }
         }
-        
-        return allGames;
     }
     
     /**
-     * Load upcoming games from cache
-     * @return List of upcoming games from cache, or null if cache is expired or doesn't exist
+     * Read the upcoming games snapshot whatever its age, from memory first and from disk on a miss
      */
-    private List<UpcomingGameResponse> loadUpcomingGamesCache() {
-        File cacheDir = new File(UPCOMING_GAMES_CACHE_DIR);
-        if (!cacheDir.exists()) {
-            cacheDir.mkdirs();
-            return null;
-        }
-        
-        File cacheFile = new File(cacheDir, "upcomingGames.json");
-        if (!cacheFile.exists()) {
-            return null;
-        }
-        
-        // Check if the cache is fresh (less than 12 hours old)
-        if (System.currentTimeMillis() - cacheFile.lastModified() > UPCOMING_GAMES_CACHE_DURATION) {
+    @SuppressWarnings("unchecked")
+    private CachedSnapshot<List<UpcomingGameResponse>> readUpcomingGamesCache() {
+        CachedSnapshot<List<UpcomingGameResponse>> snapshot = cacheManager.getCache(CacheConfig.UPCOMING_GAMES)
+                .get(UPCOMING_GAMES_KEY, CachedSnapshot.class);
+        return snapshot != null ? snapshot : readUpcomingGamesFile();
+    }
+    
+    /**
+     * Same as {@link #readUpcomingGamesCache()}, the disk read on a memory miss running on the bounded elastic scheduler
+     * @return The snapshot, empty if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<CachedSnapshot<List<UpcomingGameResponse>>> readUpcomingGamesCacheAsync() {
+        return Mono.defer(() -> {
+            CachedSnapshot<List<UpcomingGameResponse>> snapshot = cacheManager.getCache(CacheConfig.UPCOMING_GAMES)
+                    .get(UPCOMING_GAMES_KEY, CachedSnapshot.class);
+            return snapshot != null
+                    ? Mono.just(snapshot)
+                    : Mono.fromCallable(this::readUpcomingGamesFile).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+    
+    /**
+     * Read the upcoming games snapshot from disk into the memory cache
+     */
+    private CachedSnapshot<List<UpcomingGameResponse>> readUpcomingGamesFile() {
+        // The file written last wins if the codec changed since, e.g. upcomingGames.json and upcomingGames.sml
+        File cacheFile = cacheCodec.find(new File(UPCOMING_GAMES_CACHE_DIR), UPCOMING_GAMES_FILE);
+        if (cacheFile == null) {
             return null;
         }
         
         try {
-            return objectMapper.readValue(cacheFile, new TypeReference<List<UpcomingGameResponse>>() {});
+            List<UpcomingGameResponse> games = cacheCodec.read(cacheFile, new TypeReference<List<UpcomingGameResponse>>() {});
+            CachedSnapshot<List<UpcomingGameResponse>> snapshot = new CachedSnapshot<>(games, cacheFile.lastModified(), false);
+            cacheManager.getCache(CacheConfig.UPCOMING_GAMES).put(UPCOMING_GAMES_KEY, snapshot);
+            return snapshot;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -174,102 +258,104 @@ public class RawgApiService {
     /**
      * Save upcoming games to cache
      * @param games List of upcoming games to save
+     * @return The snapshot that was written
      */
-    private void saveUpcomingGamesCache(List<UpcomingGameResponse> games) {
+    private CachedSnapshot<List<UpcomingGameResponse>> saveUpcomingGamesCache(List<UpcomingGameResponse> games) {
         File cacheDir = new File(UPCOMING_GAMES_CACHE_DIR);
         if (!cacheDir.exists()) {
             cacheDir.mkdirs();
         }
         
-        File cacheFile = new File(cacheDir, "upcomingGames.json");
+        File cacheFile = new File(cacheDir, UPCOMING_GAMES_FILE + cacheCodec.extension());
         try {
-            objectMapper.writeValue(cacheFile, games);
+            cacheCodec.write(cacheFile, games);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        CachedSnapshot<List<UpcomingGameResponse>> snapshot = new CachedSnapshot<>(games, System.currentTimeMillis(), false);
+        cacheManager.getCache(CacheConfig.UPCOMING_GAMES).put(UPCOMING_GAMES_KEY, snapshot);
+        return snapshot;
     }
     
     /**
-     * Enrich games with price information from Steam
+     * Enrich games with price information from Steam.
+     * Each game is first matched to a Steam AppID by name, then all prices are fetched
+     * together through the price batcher. Only games without a cached match are searched;
+     * the searches run concurrently, paced by the rate limit of the Steam store.
+     * A game missing from the fetched prices, e.g. because its chunk failed, keeps its last known price.
      */
-    private void enrichWithPrices(List<UpcomingGameResponse> games) {
-        for (UpcomingGameResponse game : games) {
-            try {
-                // Search for the game on Steam by name
-                String gameName = game.getName();
-                if (gameName == null || gameName.isEmpty()) {
-                    continue;
-                }
-                
-                // Search for the game on Steam
-                JsonNode searchResponse = steamWebClient.get()
-                        .uri(uriBuilder -> uriBuilder
-                                .path("/storesearch/")
-                                .queryParam("term", gameName)
-                                .queryParam("l", "english")
-                                .queryParam("cc", "us")
-                                .build())
-                        .retrieve()
-                        .bodyToMono(JsonNode.class)
-                        .block();
-                
-                if (searchResponse != null && searchResponse.has("items") && searchResponse.get("items").isArray() 
-                        && searchResponse.get("items").size() > 0) {
-                    // Get the first match
-                    JsonNode firstMatch = searchResponse.get("items").get(0);
-                    if (firstMatch.has("id")) {
-                        String appId = firstMatch.get("id").asText();
-                        
-                        // Fetch price information
-                        fetchAndSetPrice(game, appId);
-                    }
-                }
-                
-                // Add a small delay to avoid rate limiting (100ms)
-                TimeUnit.MILLISECONDS.sleep(100);
-                
-            } catch (Exception e) {
-                // Just log and continue, don't fail the whole process for one game
-                System.err.println("Error fetching price for game " + game.getName() + ": " + e.getMessage());
-            }
+    private Mono<Void> enrichWithPrices(List<UpcomingGameResponse> games) {
+        return Flux.fromIterable(games)
+                .filter(game -> game.getName() != null && !game.getName().isEmpty())
+                .flatMap(game -> resolveSteamAppId(game).map(appId -> Map.entry(game, appId)), priceLookupConcurrency)
+                .collect(IdentityHashMap<UpcomingGameResponse, Long>::new, (map, entry) -> map.put(entry.getKey(), entry.getValue()))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(steamAppIds -> steamAppIdCache.flush())
+                .filter(steamAppIds -> !steamAppIds.isEmpty())
+                // Fetch all prices in a few batched calls
+                .flatMap(steamAppIds -> priceBatcher.fetchPrices(steamAppIds.values())
+                        .zipWith(previousPrices())
+                        .doOnNext(tuple -> steamAppIds.forEach((game, appId) -> {
+                            String price = tuple.getT1().get(appId);
+                            game.setPrice(price != null ? price
+                                    : tuple.getT2().getOrDefault(game.getId(), SteamPriceBatcher.PRICE_UNAVAILABLE));
+                        })))
+                .then();
+    }
+
+    /**
+     * Index the known prices of the latest upcoming games snapshot by game id.
+     */
+    private Mono<Map<Long, String>> previousPrices() {
+        return readUpcomingGamesCacheAsync()
+                .map(latest -> latest.value().stream()
+                        .filter(game -> game.getId() != null && game.getPrice() != null
+                                && !SteamPriceBatcher.PRICE_UNAVAILABLE.equals(game.getPrice()))
+                        .collect(Collectors.toMap(UpcomingGameResponse::getId, UpcomingGameResponse::getPrice, (a, b) -> a)))
+                .defaultIfEmpty(Collections.emptyMap());
+    }
+    
+    /**
+     * Get the Steam AppID of a game from the resolution cache, searching the Steam store on a miss.
+     * @return The AppID, empty if the game has no match or the search failed
+     */
+    private Mono<Long> resolveSteamAppId(UpcomingGameResponse game) {
+        SteamAppIdCache.Resolution cached = steamAppIdCache.get(game.getId(), game.getName());
+        if (cached != null) {
+            return Mono.justOrEmpty(cached.appId());
         }
+        return searchSteamAppId(game.getName())
+                .doOnNext(appId -> steamAppIdCache.put(game.getId(), game.getName(), appId))
+                // A search without a match is cached as well; a failed search is not
+                .switchIfEmpty(Mono.fromRunnable(() -> steamAppIdCache.put(game.getId(), game.getName(), null)))
+                .onErrorResume(e -> {
+                    // Just log and continue, don't fail the whole process for one game
+                    System.err.println("Error fetching price for game " + game.getName() + ": " + e.getMessage());
+                    return Mono.empty();
+                });
     }
     
     /**
-     * Fetch price for a specific game by Steam AppID
+     * Search a game on the Steam store by name.
+     * @return The AppID of the first match, empty if there is none
      */
-    private void fetchAndSetPrice(UpcomingGameResponse game, String appId) {
-        try {
-            Map<String, Map<String, Object>> detailsResponse = steamWebClient.get()
-                    .uri("/appdetails?appids={appId}&cc=us&filters=price_overview", appId)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
-                    .block();
-
-            if (detailsResponse != null && detailsResponse.containsKey(appId)) {
-                Map<String, Object> responseData = detailsResponse.get(appId);
-                if (responseData.containsKey("data") && responseData.get("data") instanceof Map) {
-                    Map<String, Object> gameData = (Map<String, Object>) responseData.get("data");
-                    
-                    if (gameData.containsKey("price_overview")) {
-                        Map<String, Object> priceData = (Map<String, Object>) gameData.get("price_overview");
-                        if (priceData != null && priceData.containsKey("final_formatted")) {
-                            game.setPrice((String) priceData.get("final_formatted"));
-                            return;
-                        }
-                    } else if (gameData.containsKey("is_free") && (Boolean) gameData.get("is_free")) {
-                        game.setPrice("Free");
-                        return;
+    private Mono<Long> searchSteamAppId(String gameName) {
+        return steamWebClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/storesearch/")
+                        .queryParam("term", gameName)
+                        .queryParam("l", "english")
+                        .queryParam("cc", "us")
+                        .build())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .flatMap(searchResponse -> {
+                    JsonNode items = searchResponse.get("items");
+                    if (items != null && items.isArray() && items.size() > 0 && items.get(0).has("id")) {
+                        return Mono.just(items.get(0).get("id").asLong());
                     }
-                }
-            }
-            
-            // If we reach here, price information couldn't be found
-            game.setPrice("Price unavailable");
-            
-        } catch (Exception e) {
-            game.setPrice("Price unavailable");
-        }
+                    return Mono.empty();
+                });
     }
     
     /**
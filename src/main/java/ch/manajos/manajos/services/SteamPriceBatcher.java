@@ -0,0 +1,125 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.config.WebClientConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves Steam store prices for many games at once.
+ * When {@code filters=price_overview} is set, the appdetails endpoint accepts a comma-separated
+ * list of appids, so the requested ids are split into chunks and each chunk costs a single call.
+ */
+@Service
+public class SteamPriceBatcher {
+
+    public static final String PRICE_UNAVAILABLE = "Price unavailable";
+
+    private final WebClient webClient;
+
+    // Number of appids sent in a single appdetails request
+    @Value("${steam.price-batch.size:50}")
+    private int batchSize;
+
+    // Maximum number of chunk requests in flight
+    @Value("${steam.price-batch.concurrency:4}")
+    private int batchConcurrency;
+
+    public SteamPriceBatcher(@Qualifier(WebClientConfig.STEAM_STORE) WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    /**
+     * Get the formatted price of every requested game.
+     * @param appIds The Steam App IDs, duplicates and nulls are ignored
+     * @return A map from appId to formatted price; ids without a price map to "Price unavailable",
+     * ids of a chunk whose call failed are left out so callers can tell them apart
+     */
+    public Mono<Map<Long, String>> fetchPrices(Collection<Long> appIds) {
+        return fetchPriceChunks(appIds).collect(HashMap::new, Map::putAll);
+    }
+
+    /**
+     * Same as {@link #fetchPrices(Collection)}, emitting the prices of each chunk as soon as its call returns.
+     * @return One map per chunk, in completion order; a failed chunk emits an empty map
+     */
+    public Flux<Map<Long, String>> fetchPriceChunks(Collection<Long> appIds) {
+        List<Long> ids = appIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            chunks.add(ids.subList(i, Math.min(i + batchSize, ids.size())));
+        }
+
+        return Flux.fromIterable(chunks)
+                .flatMap(this::fetchChunk, batchConcurrency);
+    }
+
+    /**
+     * Get the formatted price of a single game.
+     * @param appId The Steam App ID
+     * @return The formatted price string or "Price unavailable" if not found
+     */
+    public Mono<String> fetchPrice(Long appId) {
+        return fetchPrices(List.of(appId))
+                .map(prices -> prices.getOrDefault(appId, PRICE_UNAVAILABLE));
+    }
+
+    private Mono<Map<Long, String>> fetchChunk(List<Long> chunk) {
+        String appIds = chunk.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        return webClient.get()
+                .uri("/appdetails?appids={appIds}&cc=us&filters=price_overview", appIds)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
+                .map(response -> decode(chunk, response))
+                .onErrorResume(e -> {
+                    System.err.println("Error fetching prices for appids " + appIds + ": " + e.getMessage());
+                    return Mono.just(Collections.emptyMap());
+                });
+    }
+
+    /**
+     * Decode the per-app map returned by appdetails. Every id of the chunk gets an entry.
+     */
+    private Map<Long, String> decode(List<Long> chunk, Map<String, Map<String, Object>> response) {
+        Map<Long, String> prices = new HashMap<>();
+        for (Long appId : chunk) {
+            Map<String, Object> responseData = response.get(appId.toString());
+            prices.put(appId, responseData != null ? formatPrice(responseData.get("data")) : PRICE_UNAVAILABLE);
+        }
+        return prices;
+    }
+
+    /**
+     * Format the price contained in the "data" node of an appdetails entry.
+     * Free games come back with an empty data node when the price filter is set.
+     */
+    @SuppressWarnings("unchecked")
+    static String formatPrice(Object dataObject) {
+        if (dataObject instanceof Map) {
+            Map<String, Object> gameData = (Map<String, Object>) dataObject;
+            if (gameData.containsKey("price_overview")) {
+                Map<String, Object> priceData = (Map<String, Object>) gameData.get("price_overview");
+                if (priceData != null && priceData.containsKey("final_formatted")) {
+                    return (String) priceData.get("final_formatted");
+                }
+            } else if (Boolean.TRUE.equals(gameData.get("is_free"))) {
+                return "Free";
+            }
+        }
+        return PRICE_UNAVAILABLE;
+    }
+}
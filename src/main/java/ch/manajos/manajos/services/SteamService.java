@@ -1,58 +1,347 @@
 package ch.manajos.manajos.services;
 
+import ch.manajos.manajos.cache.CacheCodec;
+import ch.manajos.manajos.cache.CachedSnapshot;
+import ch.manajos.manajos.cache.LivePlayerIndex;
+import ch.manajos.manajos.cache.PeakHistoryIndex;
+import ch.manajos.manajos.cache.PeakHistoryStore;
+import ch.manajos.manajos.cache.SnapshotCompactor;
+import ch.manajos.manajos.cache.SnapshotManifest;
+import ch.manajos.manajos.config.CacheConfig;
+import ch.manajos.manajos.config.CacheRefreshProperties;
+import ch.manajos.manajos.config.WebClientConfig;
+import ch.manajos.manajos.dto.GameDetailsResult;
+import ch.manajos.manajos.dto.PeakBucket;
+import ch.manajos.manajos.dto.PeakHistoryComparison;
 import ch.manajos.manajos.dto.SteamGameDetails;
 import ch.manajos.manajos.dto.SteamGameDetailsResponse;
 import ch.manajos.manajos.dto.SteamGameResponse;
 import ch.manajos.manajos.dto.SteamUserResponse;
+import ch.manajos.manajos.dto.TopGamesEvent;
+import ch.manajos.manajos.utils.BadRequestException;
+import ch.manajos.manajos.utils.GameNotFoundException;
+import ch.manajos.manajos.utils.SingleFlight;
+import ch.manajos.manajos.utils.UpstreamUnavailableException;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class SteamService {
 
     private final WebClient webClient;
+    private final WebClient storeWebClient;
+    private final SteamPriceBatcher priceBatcher;
+    private final SingleFlight singleFlight = new SingleFlight();
+    // When the name and image of each top game were last fetched from the store, in epoch milliseconds
+    private final Map<Long, Long> nameResolvedAt = new ConcurrentHashMap<>();
 
     @Value("${steam.api.key}")
     private String steamApiKey;
 
-    // ObjectMapper for JSON serialization/deserialization
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     // Directories for caching data
     private static final String TOP_GAMES_CACHE_DIR = "src/main/resources/cache/topGames/";
     private static final String GAME_DETAILS_CACHE_DIR = "src/main/resources/cache/gameDetails/";
-    // Duration limits in milliseconds: 24 hours for top games and 2 weeks for game details
-    private static final long TOP_GAMES_CACHE_DURATION = 86400000L;
-    private static final long GAME_DETAILS_CACHE_DURATION = 1209600000L;
-
-    public SteamService(WebClient webClient) {
+    // File name prefixes of the snapshots in each cache directory
+    private static final String TOP_GAMES_PREFIX = "topGames_";
+    private static final String GAME_DETAILS_PREFIX = "details_";
+    private static final String TOP_GAMES_KEY = "topGames";
+    // Upstream named in the errors raised when it is down and no snapshot can be served
+    private static final String UPSTREAM = "Steam";
+
+    // TTL, max-stale bound and background refresh timing of each cache
+    private final CacheRefreshProperties refreshProperties;
+    // In-memory tier in front of the JSON files
+    private final CacheManager cacheManager;
+    // Compact (timestamp, appId, peak, rank) history fed by every top games snapshot
+    private final PeakHistoryStore peakHistoryStore;
+    private final PeakHistoryIndex peakHistoryIndex;
+    // Player count and rank of the current top games, for details enrichment
+    private final LivePlayerIndex livePlayerIndex;
+    // Latest snapshot of each cache directory, so loads never list a directory
+    private final SnapshotManifest snapshotManifest;
+    // Deletes old and duplicate game details snapshots
+    private final SnapshotCompactor snapshotCompactor;
+    // Encoding of the snapshot files
+    private final CacheCodec cacheCodec;
+
+    // Maximum number of store lookups in flight while enriching the top games
+    @Value("${steam.top-games.concurrency:16}")
+    private int enrichConcurrency;
+
+    // Maximum number of appIds of a batch details request
+    @Value("${steam.details-batch.max-size:100}")
+    private int detailsBatchMaxSize;
+
+    // Maximum number of games of a batch resolved at once; cache hits free their slot immediately
+    @Value("${steam.details-batch.concurrency:8}")
+    private int detailsBatchConcurrency;
+
+    // Age after which a name and image carried over from the previous snapshot are fetched again
+    @Value("${steam.top-games.name-max-age:7d}")
+    private Duration nameMaxAge;
+
+    // Share of games whose store lookups may fail before a refresh is rejected in favour of the previous snapshot
+    @Value("${steam.top-games.max-failed-ratio:0.2}")
+    private double maxFailedRatio;
+
+    public SteamService(@Qualifier(WebClientConfig.STEAM_API) WebClient webClient,
+                        @Qualifier(WebClientConfig.STEAM_STORE) WebClient storeWebClient, SteamPriceBatcher priceBatcher, CacheRefreshProperties refreshProperties,
+                        CacheManager cacheManager, PeakHistoryStore peakHistoryStore,
+                        PeakHistoryIndex peakHistoryIndex, SnapshotManifest snapshotManifest,
+                        SnapshotCompactor snapshotCompactor, CacheCodec cacheCodec,
+                        LivePlayerIndex livePlayerIndex) {
         this.webClient = webClient;
+        this.storeWebClient = storeWebClient;
+        this.priceBatcher = priceBatcher;
+        this.refreshProperties = refreshProperties;
+        this.cacheManager = cacheManager;
+        this.peakHistoryStore = peakHistoryStore;
+        this.peakHistoryIndex = peakHistoryIndex;
+        this.snapshotManifest = snapshotManifest;
+        this.snapshotCompactor = snapshotCompactor;
+        this.cacheCodec = cacheCodec;
+        this.livePlayerIndex = livePlayerIndex;
+    }
+
+    /**
+     * Import the existing JSON snapshots into the peak history store the first time the app starts with it,
+     * then load the per-app index from the store and the live player counts from the latest snapshot.
+     */
+    @PostConstruct
+    public void initPeakHistory() {
+        if (!peakHistoryStore.exists()) {
+            peakHistoryStore.importSnapshots(new File(TOP_GAMES_CACHE_DIR));
+        }
+        peakHistoryIndex.rebuild();
+
+        SnapshotManifest.Entry latest = snapshotManifest.resolve(new File(TOP_GAMES_CACHE_DIR), TOP_GAMES_PREFIX);
+        if (latest != null) {
+            try {
+                livePlayerIndex.publish(cacheCodec, new File(TOP_GAMES_CACHE_DIR, latest.file()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     // ----------------------------------------------------------------
     // 1. Existing: getTopGames()
     // ----------------------------------------------------------------
     public List<SteamGameResponse> getTopGames() {
+        return getTopGamesSnapshot().value();
+    }
+
+    /**
+     * Blocking variant of {@link #getTopGamesSnapshotAsync()}.
+     */
+    public CachedSnapshot<List<SteamGameResponse>> getTopGamesSnapshot() {
+        return getTopGamesSnapshotAsync().block();
+    }
+
+    /**
+     * Get the current top games snapshot.
+     * A stale snapshot is returned immediately and renewed in the background; the caller only
+     * waits for upstream when no snapshot within the max-stale bound exists. If upstream is down
+     * the last snapshot is served as stale whatever its age. Never blocks the subscribing thread.
+     */
+    public Mono<CachedSnapshot<List<SteamGameResponse>>> getTopGamesSnapshotAsync() {
         // Try to load cached data first
-        List<SteamGameResponse> cachedGames = loadTopGamesCache();
-        if (cachedGames != null) {
-            return cachedGames;
-        }
+        return readTopGamesCacheAsync()
+                .mapNotNull(snapshot -> refreshProperties.getTopGames().evaluate(snapshot))
+                .doOnNext(cached -> {
+                    if (cached.stale()) {
+                        singleFlight.executeInBackground(TOP_GAMES_KEY, this::fetchAndSaveTopGames);
+                    }
+                })
+                // Concurrent misses share a single refresh
+                .switchIfEmpty(Mono.defer(() -> singleFlight.execute(TOP_GAMES_KEY, this::refreshTopGames)))
+                .onErrorResume(e -> CachedSnapshot.lastGood(readTopGamesCacheAsync(), e, UPSTREAM))
+                // Nothing to serve: the empty placeholder is flagged stale so clients do not cache it for a full TTL
+                .switchIfEmpty(Mono.fromSupplier(() -> new CachedSnapshot<>(Collections.emptyList(), System.currentTimeMillis(), true)));
+    }
+
+    /**
+     * Stream the top games as they are resolved, see {@link TopGamesEvent}.
+     * A snapshot within the max-stale bound is streamed at once as its ranked list. Otherwise the ranked
+     * list from GetMostPlayedGames is streamed as soon as it arrives, then the name, image and price of
+     * each game as its lookup returns, and the snapshot is saved once complete. A stream joining a
+     * refresh already in flight receives the whole ranked list when that refresh completes.
+     */
+    public Flux<TopGamesEvent> streamTopGames() {
+        return readTopGamesCacheAsync()
+                .mapNotNull(snapshot -> refreshProperties.getTopGames().evaluate(snapshot))
+                .doOnNext(cached -> {
+                    if (cached.stale()) {
+                        singleFlight.executeInBackground(TOP_GAMES_KEY, this::fetchAndSaveTopGames);
+                    }
+                })
+                .map(cached -> Flux.fromIterable(snapshotEvents(cached)))
+                .switchIfEmpty(Mono.fromSupplier(this::streamTopGamesRefresh))
+                .flatMapMany(events -> events);
+    }
+
+    private Flux<TopGamesEvent> streamTopGamesRefresh() {
+        Sinks.Many<TopGamesEvent> sink = Sinks.many().unicast().onBackpressureBuffer();
+        // Lookups complete on several threads; emissions into the sink must not overlap
+        Consumer<TopGamesEvent> progress = event -> {
+            synchronized (sink) {
+                sink.tryEmitNext(event);
+            }
+        };
+        AtomicBoolean streamed = new AtomicBoolean();
+        Mono<CachedSnapshot<List<SteamGameResponse>>> refresh = singleFlight
+                .execute(TOP_GAMES_KEY, () -> {
+                    streamed.set(true);
+                    return fetchAndSaveTopGames(progress);
+                })
+                .onErrorResume(e -> CachedSnapshot.lastGood(readTopGamesCacheAsync(), e, UPSTREAM)
+                        .doOnNext(lastGood -> streamed.set(false)));
+
+        Disposable.Swap subscription = Disposables.swap();
+        return sink.asFlux()
+                .doOnSubscribe(s -> subscription.update(refresh.subscribe(
+                        // The ranked list replaces whatever was streamed before
+                        snapshot -> (streamed.get()
+                                ? List.of(TopGamesEvent.complete(snapshot.writtenAt(), snapshot.stale()))
+                                : snapshotEvents(snapshot)).forEach(progress),
+                        error -> {
+                            synchronized (sink) {
+                                sink.tryEmitError(error);
+                            }
+                        },
+                        () -> {
+                            synchronized (sink) {
+                                sink.tryEmitComplete();
+                            }
+                        })))
+                // The shared refresh goes on and still saves the snapshot
+                .doOnCancel(subscription::dispose);
+    }
+
+    private static List<TopGamesEvent> snapshotEvents(CachedSnapshot<List<SteamGameResponse>> snapshot) {
+        return List.of(TopGamesEvent.ranks(snapshot.value()),
+                TopGamesEvent.complete(snapshot.writtenAt(), snapshot.stale()));
+    }
 
+    /**
+     * Renew the top games snapshot if it would expire before the next background run.
+     */
+    public Mono<Void> refreshTopGamesIfDue() {
+        return Mono.defer(() -> {
+            CachedSnapshot<List<SteamGameResponse>> latest = readTopGamesCache();
+            if (latest != null && !refreshProperties.getTopGames().isDue(latest.ageMillis())) {
+                return Mono.<Void>empty();
+            }
+            return singleFlight.execute(TOP_GAMES_KEY, this::fetchAndSaveTopGames).then();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Fetch the top games and save them as a new snapshot.
+     * The cache is checked again first, since a refresh may have completed while this one was queued.
+     */
+    private Mono<CachedSnapshot<List<SteamGameResponse>>> refreshTopGames() {
+        return readTopGamesCacheAsync()
+                .mapNotNull(snapshot -> refreshProperties.getTopGames().evaluate(snapshot))
+                .filter(cached -> !cached.stale())
+                .switchIfEmpty(Mono.defer(this::fetchAndSaveTopGames));
+    }
+
+    private Mono<CachedSnapshot<List<SteamGameResponse>>> fetchAndSaveTopGames() {
+        return fetchAndSaveTopGames(event -> {});
+    }
+
+    /**
+     * @param progress Receives the ranked list and each resolved field while the games are enriched
+     */
+    private Mono<CachedSnapshot<List<SteamGameResponse>>> fetchAndSaveTopGames(Consumer<TopGamesEvent> progress) {
+        return fetchTopGames(progress)
+                .publishOn(Schedulers.boundedElastic())
+                // Save the new API response to cache (without overwriting previous files)
+                .map(this::saveTopGamesCache);
+    }
+
+    /**
+     * Fetches the most played games and enriches each one with its name, image and price.
+     * Prices are resolved in a handful of batched calls. Names and images are carried over from
+     * the previous snapshot for up to {@code nameMaxAge}, so only games that are new to the chart or
+     * due for a refetch need a store lookup; those run with at most {@code enrichConcurrency} requests
+     * in flight. Ranking order is preserved.
+     * A failed lookup keeps the previous snapshot's value; when more than {@code maxFailedRatio}
+     * of the games could not be resolved, the refresh fails so the previous snapshot stays current.
+     * @param progress Receives the ranked list as soon as it arrives, then every name, image and price as resolved
+     */
+    private Mono<List<SteamGameResponse>> fetchTopGames(Consumer<TopGamesEvent> progress) {
         // 1. Get basic game data from the API
-        List<SteamGameResponse> games = webClient.get()
+        return fetchRankedGames()
+                .doOnNext(games -> progress.accept(TopGamesEvent.ranks(games.stream().map(SteamService::rankOnly).toList())))
+                // 2. Enrich with game names, images, and prices
+                .flatMap(games -> previousTopGames().flatMap(previous -> {
+                    // Forget the games that left the chart
+                    Set<Long> appIds = games.stream().map(SteamGameResponse::getAppId).collect(Collectors.toSet());
+                    nameResolvedAt.keySet().retainAll(appIds);
+                    AtomicInteger failed = new AtomicInteger();
+                    Mono<List<SteamGameResponse>> named = Flux.fromIterable(games)
+                            .flatMapSequential(game -> enrichTopGame(game, previous.get(game.getAppId()), failed)
+                                    .doOnNext(enriched -> progress.accept(TopGamesEvent.details(
+                                            enriched.getAppId(), enriched.getName(), enriched.getImage()))), enrichConcurrency)
+                            .collectList();
+                    Mono<Map<Long, String>> prices = priceBatcher
+                            .fetchPriceChunks(games.stream().map(SteamGameResponse::getAppId).collect(Collectors.toList()))
+                            .doOnNext(chunk -> chunk.forEach((appId, price) -> progress.accept(TopGamesEvent.price(appId, price))))
+                            .<Map<Long, String>>collect(HashMap::new, Map::putAll);
+
+                    return Mono.zip(named, prices).flatMap(tuple -> {
+                        for (SteamGameResponse game : tuple.getT1()) {
+                            String price = tuple.getT2().get(game.getAppId());
+                            if (price == null) {
+                                // The price call failed: keep the last known price rather than caching a placeholder
+                                failed.incrementAndGet();
+                                SteamGameResponse last = previous.get(game.getAppId());
+                                price = last != null && last.getPrice() != null ? last.getPrice() : SteamPriceBatcher.PRICE_UNAVAILABLE;
+                                progress.accept(TopGamesEvent.price(game.getAppId(), price));
+                            }
+                            game.setPrice(price);
+                        }
+                        if (failed.get() > maxFailedRatio * games.size()) {
+                            return Mono.error(new UpstreamUnavailableException("store.steampowered.com",
+                                    failed.get() + " of " + games.size() + " top games lookups failed"));
+                        }
+                        return Mono.just(tuple.getT1());
+                    });
+                }));
+    }
+
+    /**
+     * Fetch the most played games with their rank and player count only, in a single upstream call.
+     * Bypasses the cache; nothing is saved.
+     */
+    public Mono<List<SteamGameResponse>> fetchRankedGames() {
+        return webClient.get()
                 .uri("/ISteamChartsService/GetMostPlayedGames/v1/")
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
@@ -60,59 +349,89 @@ public class SteamService {
                     Map<String, Object> responseBody = response.get("response");
                     List<Map<String, Object>> ranks = (List<Map<String, Object>>) responseBody.get("ranks");
                     return parseTopGames(ranks);
-                })
-                .block();
+                });
+    }
 
-        // 2. Enrich with game names, images, and prices
-        if (games != null) {
-            games.parallelStream().forEach(game -> {
-                try {
-                    Map<String, Map<String, Object>> detailsResponse = webClient.get()
-                            .uri("https://store.steampowered.com/api/appdetails?appids={appId}&cc=us&filters=price_overview", game.getAppId())
-                            .retrieve()
-                            .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
-                            .block();
-
-                    if (detailsResponse != null && detailsResponse.containsKey(game.getAppId().toString())) {
-                        Object dataObject = detailsResponse.get(game.getAppId().toString()).get("data");
-                        if (dataObject instanceof Map) {
-                            Map<String, Object> gameData = (Map<String, Object>) dataObject;
-                            game.setName((String) gameData.get("name"));
-                            game.setImage((String) gameData.get("header_image"));
-                            
-                            // Add price information
-                            if (gameData.containsKey("price_overview")) {
-                                Map<String, Object> priceData = (Map<String, Object>) gameData.get("price_overview");
-                                if (priceData != null && priceData.containsKey("final_formatted")) {
-                                    game.setPrice((String) priceData.get("final_formatted"));
-                                } else {
-                                    game.setPrice("Price unavailable");
-                                }
-                            } else if (gameData.containsKey("is_free") && (Boolean) gameData.get("is_free")) {
-                                game.setPrice("Free");
-                            } else {
-                                game.setPrice("Price unavailable");
-                            }
-                        } else {
-                            game.setName("Name unavailable");
-                            game.setImage("Image unavailable");
-                            game.setPrice("Price unavailable");
-                        }
-                    }
-                } catch (Exception e) {
-                    game.setName("Name unavailable");
-                    game.setImage("Image unavailable");
-                    game.setPrice("Price unavailable");
-                }
-            });
+    /**
+     * Index the latest top games snapshot by appId, whatever its age, so names and images
+     * can be reused for games that stay on the chart.
+     */
+    private Mono<Map<Long, SteamGameResponse>> previousTopGames() {
+        return readTopGamesCacheAsync()
+                .map(latest -> latest.value().stream()
+                        .filter(game -> game.getAppId() != null)
+                        .collect(Collectors.toMap(SteamGameResponse::getAppId, game -> game, (a, b) -> a)))
+                .defaultIfEmpty(Collections.emptyMap());
+    }
+
+    /**
+     * Set the name and image of a game, carried over from its previous entry while younger than
+     * {@code nameMaxAge}, fetched from the store otherwise. A failed refetch keeps the previous name.
+     */
+    private Mono<SteamGameResponse> enrichTopGame(SteamGameResponse game, SteamGameResponse previous, AtomicInteger failed) {
+        boolean previousNamed = previous != null && previous.getName() != null && !"Name unavailable".equals(previous.getName());
+        if (previousNamed) {
+            // A name loaded from disk has no known fetch time: its age counts from the first time it is seen
+            long resolvedAt = nameResolvedAt.computeIfAbsent(game.getAppId(), appId -> System.currentTimeMillis());
+            if (System.currentTimeMillis() - resolvedAt < nameMaxAge.toMillis()) {
+                game.setName(previous.getName());
+                game.setImage(previous.getImage());
+                return Mono.just(game);
+            }
         }
 
-        // Save the new API response to cache (without overwriting previous files)
-        if (games != null) {
-            saveTopGamesCache(games);
+        SteamGameResponse namedPrevious = previousNamed ? previous : null;
+        return storeWebClient.get()
+                .uri("/appdetails?appids={appId}&cc=us&filters=basic", game.getAppId())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
+                .map(detailsResponse -> {
+                    Map<String, Object> responseData = detailsResponse.get(game.getAppId().toString());
+                    Object dataObject = responseData != null ? responseData.get("data") : null;
+                    if (dataObject instanceof Map) {
+                        Map<String, Object> gameData = (Map<String, Object>) dataObject;
+                        game.setName((String) gameData.get("name"));
+                        game.setImage((String) gameData.get("header_image"));
+                        nameResolvedAt.put(game.getAppId(), System.currentTimeMillis());
+                        return game;
+                    }
+                    // No data for the game, e.g. "success": false: a failed lookup like any other
+                    return lookupFailed(game, namedPrevious, failed);
+                })
+                // An empty body would otherwise drop the game from the list
+                .switchIfEmpty(Mono.fromSupplier(() -> lookupFailed(game, namedPrevious, failed)))
+                .onErrorResume(e -> Mono.just(lookupFailed(game, namedPrevious, failed)));
+    }
+
+    /**
+     * Fallback of a failed name lookup: keep the previous name, still valid and retried on the next refresh,
+     * or count the failure and mark the name unavailable.
+     */
+    private SteamGameResponse lookupFailed(SteamGameResponse game, SteamGameResponse namedPrevious, AtomicInteger failed) {
+        if (namedPrevious != null) {
+            game.setName(namedPrevious.getName());
+            game.setImage(namedPrevious.getImage());
+        } else {
+            failed.incrementAndGet();
+            markUnavailable(game);
         }
+        return game;
+    }
 
-        return games != null ? games : Collections.emptyList();
+    /**
+     * Copy of a game holding only its ranking fields, safe to serialize while the game is being enriched.
+     */
+    private static SteamGameResponse rankOnly(SteamGameResponse game) {
+        SteamGameResponse copy = new SteamGameResponse();
+        copy.setAppId(game.getAppId());
+        copy.setPlayerCount(game.getPlayerCount());
+        copy.setRank(game.getRank());
+        return copy;
+    }
+
+    private void markUnavailable(SteamGameResponse game) {
+        game.setName("Name unavailable");
+        game.setImage("Image unavailable");
     }
 
     private List<SteamGameResponse> parseTopGames(List<Map<String, Object>> ranks) {
@@ -129,98 +448,260 @@ public class SteamService {
     // 2. Existing: getGameDetails(appId)
     // ----------------------------------------------------------------
     public SteamGameDetails getGameDetails(Long appId) {
+        return getGameDetailsSnapshot(appId).value();
+    }
+
+    /**
+     * Blocking variant of {@link #getGameDetailsSnapshotAsync(Long)}.
+     */
+    public CachedSnapshot<SteamGameDetails> getGameDetailsSnapshot(Long appId) {
+        return getGameDetailsSnapshotAsync(appId).block();
+    }
+
+    /**
+     * Get the current details snapshot of a game, renewing it in the background when stale.
+     * If upstream is down the last snapshot is served as stale whatever its age.
+     * The player count is looked up in the current top games on every call, it is never cached.
+     * Never blocks the subscribing thread.
+     */
+    public Mono<CachedSnapshot<SteamGameDetails>> getGameDetailsSnapshotAsync(Long appId) {
+        String key = "details:" + appId;
+
         // Try to load cached game details first
-        SteamGameDetails cachedDetails = loadGameDetailsCache(appId);
-        if (cachedDetails != null) {
-            return cachedDetails;
+        return readGameDetailsCacheAsync(appId)
+                .mapNotNull(snapshot -> refreshProperties.getGameDetails().evaluate(snapshot))
+                .doOnNext(cached -> {
+                    if (cached.stale()) {
+                        singleFlight.executeInBackground(key, () -> fetchAndSaveGameDetails(appId));
+                    }
+                })
+                // Concurrent misses for the same appId share a single fetch
+                .switchIfEmpty(Mono.defer(() -> singleFlight.execute(key, () -> refreshGameDetails(appId))))
+                .onErrorResume(e -> CachedSnapshot.lastGood(readGameDetailsCacheAsync(appId), e, UPSTREAM))
+                .map(snapshot -> withLivePlayerCount(appId, snapshot));
+    }
+
+    /**
+     * Copy of a details snapshot carrying the current player count of the game, null if it is not in the top games.
+     * The snapshot records when that count was published, so responses are revalidated when it changes.
+     */
+    private CachedSnapshot<SteamGameDetails> withLivePlayerCount(Long appId, CachedSnapshot<SteamGameDetails> snapshot) {
+        LivePlayerIndex.Entry live = livePlayerIndex.entry(appId);
+        SteamGameDetails details = snapshot.value()
+                .withPlayerCount(live.playerCount() != LivePlayerIndex.UNKNOWN ? live.playerCount() : null);
+        return new CachedSnapshot<>(details, snapshot.writtenAt(), snapshot.stale(), live.publishedAt());
+    }
+
+    /**
+     * Blocking variant of {@link #getGameDetailsBatchAsync(List)}.
+     */
+    public List<GameDetailsResult> getGameDetailsBatch(List<Long> appIds) {
+        return getGameDetailsBatchAsync(appIds).block();
+    }
+
+    /**
+     * Get the details of several games at once, each resolved as by {@link #getGameDetailsSnapshotAsync(Long)}.
+     * Snapshots in memory answer inline and disk reads run in parallel; misses are fetched with at most
+     * {@code detailsBatchConcurrency} games in flight, sharing any fetch already running for the same game.
+     * A failed game does not fail the batch, it gets a failure status instead.
+     * @param appIds The Steam App IDs; duplicates and nulls are ignored
+     * @return One result per distinct appId, in request order
+     */
+    public Mono<List<GameDetailsResult>> getGameDetailsBatchAsync(List<Long> appIds) {
+        List<Long> ids = appIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (ids.size() > detailsBatchMaxSize) {
+            return Mono.error(new BadRequestException("At most " + detailsBatchMaxSize + " appIds per batch"));
+        }
+        return Flux.fromIterable(ids)
+                .flatMapSequential(appId -> getGameDetailsSnapshotAsync(appId)
+                        .map(snapshot -> new GameDetailsResult(appId,
+                                snapshot.stale() ? GameDetailsResult.STALE : GameDetailsResult.OK, snapshot.value(), null))
+                        .onErrorResume(e -> Mono.just(new GameDetailsResult(appId, failureStatus(e), null, e.getMessage()))),
+                        detailsBatchConcurrency)
+                .collectList();
+    }
+
+    /**
+     * Batch status of a game whose details could not be loaded.
+     */
+    private static String failureStatus(Throwable error) {
+        if (error instanceof GameNotFoundException) {
+            return GameDetailsResult.NOT_FOUND;
+        }
+        if (UpstreamUnavailableException.isUpstreamFailure(error)) {
+            return GameDetailsResult.UNAVAILABLE;
+        }
+        return GameDetailsResult.ERROR;
+    }
+
+    /**
+     * Apply the retention policy to the snapshots of every cached game.
+     * @return The number of deleted snapshots
+     */
+    public int compactGameDetails() {
+        return snapshotCompactor.compactAll(new File(GAME_DETAILS_CACHE_DIR), GAME_DETAILS_PREFIX);
+    }
+
+    /**
+     * Renew the details of every cached game that would expire before the next background run.
+     */
+    public Mono<Void> refreshDueGameDetails() {
+        return Mono.fromCallable(this::dueGameDetails)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(appId -> singleFlight.execute("details:" + appId, () -> fetchAndSaveGameDetails(appId))
+                        .onErrorResume(e -> {
+                            System.err.println("Background refresh of details:" + appId + " failed: " + e.getMessage());
+                            return Mono.empty();
+                        }), enrichConcurrency)
+                .then();
+    }
+
+    private List<Long> dueGameDetails() {
+        File[] appDirs = new File(GAME_DETAILS_CACHE_DIR).listFiles(File::isDirectory);
+        if (appDirs == null) {
+            return Collections.emptyList();
+        }
+        long now = System.currentTimeMillis();
+        List<Long> due = new ArrayList<>();
+        for (File appDir : appDirs) {
+            SnapshotManifest.Entry latest = snapshotManifest.resolve(appDir, GAME_DETAILS_PREFIX);
+            if (latest != null && refreshProperties.getGameDetails().isDue(now - latest.writtenAt())) {
+                try {
+                    due.add(Long.parseLong(appDir.getName()));
+                } catch (NumberFormatException e) {
+                    // Not an app directory
+                }
+            }
         }
+        return due;
+    }
+
+    private Mono<CachedSnapshot<SteamGameDetails>> refreshGameDetails(Long appId) {
+        // Another caller may have filled the cache in the meantime
+        return readGameDetailsCacheAsync(appId)
+                .mapNotNull(snapshot -> refreshProperties.getGameDetails().evaluate(snapshot))
+                .filter(cached -> !cached.stale())
+                .switchIfEmpty(Mono.defer(() -> fetchAndSaveGameDetails(appId)));
+    }
 
+    private Mono<CachedSnapshot<SteamGameDetails>> fetchAndSaveGameDetails(Long appId) {
         // Fetch details from Steam Store API
-        Map<String, SteamGameDetailsResponse> detailsResponse = Objects.requireNonNull(
-                webClient.get()
-                        .uri("https://store.steampowered.com/api/appdetails?appids={appId}", appId)
-                        .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<Map<String, SteamGameDetailsResponse>>() {})
-                        .block()
-        );
-        SteamGameDetails details = detailsResponse.get(appId.toString()).getData();
-
-        // Enrich with peak in-game player count from the top games list
-        List<SteamGameResponse> topGames = getTopGames();
-        topGames.stream()
-                .filter(game -> game.getAppId().equals(appId))
-                .findFirst()
-                .ifPresent(match -> details.setPlayerCount(match.getPlayerCount()));
-
-        // Save the new details data to cache (appending a new file)
-        saveGameDetailsCache(appId, details);
-        return details;
+        return storeWebClient.get()
+                .uri("/appdetails?appids={appId}", appId)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, SteamGameDetailsResponse>>() {})
+                .switchIfEmpty(Mono.error(() -> new GameNotFoundException(appId)))
+                .publishOn(Schedulers.boundedElastic())
+                .map(detailsResponse -> {
+                    SteamGameDetailsResponse response = detailsResponse.get(appId.toString());
+                    SteamGameDetails details = response != null ? response.getData() : null;
+                    if (details == null) {
+                        throw new GameNotFoundException(appId);
+                    }
+
+                    // Save the new details data to cache (appending a new file)
+                    return saveGameDetailsCache(appId, details);
+                });
     }
 
     // ----------------------------------------------------------------
     // 3. NEW: getPeakHistory(appId, days)
     // ----------------------------------------------------------------
     /**
-     * Reads all "topGames_*.json" files, parses the timestamp from the filename,
-     * and returns a list of (timestamp, peak) for the specified appId.
+     * Returns the list of (timestamp, peak) for the specified appId, in ascending timestamp order.
+     * Served from the in-memory per-app index: a binary search on the cutoff, then the app's points only.
      */
     public List<PeakDataPoint> getPeakHistory(Long appId, int days) {
-        File cacheDir = new File(TOP_GAMES_CACHE_DIR);
-        if (!cacheDir.exists()) {
-            return Collections.emptyList();
-        }
-
-        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null || files.length == 0) {
-            return Collections.emptyList();
-        }
+        long cutoff = peakHistoryCutoff(days, System.currentTimeMillis());
 
-        List<PeakDataPoint> result = new ArrayList<>();
+        List<PeakDataPoint> result = new ArrayList<>(peakHistoryIndex.count(appId, cutoff));
+        peakHistoryIndex.visit(appId, cutoff, (timestamp, peak) -> result.add(new PeakDataPoint(timestamp, peak)));
+        return result;
+    }
 
-        for (File file : files) {
-            String filename = file.getName(); // e.g. "topGames_1740658015189.json"
-            long fileTimestamp;
-            try {
-                // Extract the number after "topGames_" and before ".json"
-                String timestampStr = filename.substring(
-                        filename.indexOf('_') + 1,
-                        filename.lastIndexOf('.')
-                );
-                fileTimestamp = Long.parseLong(timestampStr);
-            } catch (Exception e) {
-                continue;
+    /**
+     * Returns the peak history of the specified appId aggregated into time buckets (min/max/avg/last),
+     * computed in one pass over the app's points. The bucket width is either the given resolution,
+     * with buckets aligned on the epoch, or the period split into the given number of buckets.
+     * Buckets without any snapshot are omitted.
+     */
+    public List<PeakBucket> getPeakHistoryBuckets(Long appId, int days, Integer buckets, Duration resolution) {
+        long now = System.currentTimeMillis();
+        long cutoff = peakHistoryCutoff(days, now);
+
+        PeakBucketAggregator aggregator;
+        if (resolution != null) {
+            if (resolution.toMillis() <= 0) {
+                throw new BadRequestException("resolution must be positive");
             }
-
-            // Read the JSON array of SteamGameResponse
-            List<SteamGameResponse> gameList;
-            try {
-                gameList = objectMapper.readValue(file, new TypeReference<List<SteamGameResponse>>() {});
-            } catch (IOException e) {
-                continue;
+            aggregator = new PeakBucketAggregator(0, resolution.toMillis());
+        } else {
+            if (buckets == null || buckets <= 0) {
+                throw new BadRequestException("buckets must be positive");
             }
-
-            // Find the matching appId in that list
-            for (SteamGameResponse game : gameList) {
-                if (game.getAppId().equals(appId)) {
-                    PeakDataPoint pd = new PeakDataPoint(fileTimestamp, game.getPlayerCount());
-                    result.add(pd);
-                    break;
-                }
+            long start = days > 0 ? cutoff : peakHistoryIndex.firstTimestamp(appId, cutoff);
+            if (start == Long.MIN_VALUE) {
+                return Collections.emptyList();
             }
+            long span = now - start + 1;
+            aggregator = new PeakBucketAggregator(start, Math.max(1, (span + buckets - 1) / buckets));
         }
+        peakHistoryIndex.visit(appId, cutoff, aggregator);
+        return aggregator.finish();
+    }
 
-        // Optionally filter by last N days
-        if (days > 0) {
-            long cutoff = System.currentTimeMillis() - (days * 86400000L);
-            result = result.stream()
-                    .filter(pd -> pd.getTimestamp() >= cutoff)
-                    .collect(Collectors.toList());
+    /**
+     * Returns at most {@code points} data points of the peak history of the specified appId,
+     * selected with the shape-preserving LTTB algorithm in one pass over the app's points.
+     */
+    public List<PeakDataPoint> getPeakHistoryDownsampled(Long appId, int days, int points) {
+        if (points <= 0) {
+            throw new BadRequestException("buckets must be positive");
         }
+        long cutoff = peakHistoryCutoff(days, System.currentTimeMillis());
 
-        // Sort ascending by timestamp
-        result.sort(Comparator.comparingLong(PeakDataPoint::getTimestamp));
+        LttbDownsampler downsampler = new LttbDownsampler(peakHistoryIndex.count(appId, cutoff), points);
+        peakHistoryIndex.visit(appId, cutoff, downsampler);
+        return downsampler.finish();
+    }
 
-        return result;
+    /**
+     * Returns the peak histories of several games aligned on shared timestamps.
+     * All series are extracted in a single merged pass over the indexed history; only timestamps
+     * at which at least one of the games was ranked are included.
+     */
+    public PeakHistoryComparison getPeakHistoryComparison(List<Long> appIds, int days) {
+        long cutoff = peakHistoryCutoff(days, System.currentTimeMillis());
+        long[] ids = appIds.stream().filter(Objects::nonNull).distinct().mapToLong(Long::longValue).toArray();
+
+        List<Long> timestamps = new ArrayList<>();
+        List<List<Integer>> columns = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            columns.add(new ArrayList<>());
+        }
+        peakHistoryIndex.visitMerged(ids, cutoff, (timestamp, app, peak) -> {
+            if (timestamps.isEmpty() || timestamps.get(timestamps.size() - 1) != timestamp) {
+                // New aligned row, empty until the games of this snapshot are visited
+                timestamps.add(timestamp);
+                columns.forEach(column -> column.add(null));
+            }
+            List<Integer> column = columns.get(app);
+            column.set(column.size() - 1, peak);
+        });
+
+        Map<Long, List<Integer>> series = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            series.put(ids[i], columns.get(i));
+        }
+        return new PeakHistoryComparison(timestamps, series);
+    }
+
+    /**
+     * Optionally restrict the history to the last N days.
+     */
+    private static long peakHistoryCutoff(int days, long now) {
+        return days > 0 ? now - (days * 86400000L) : Long.MIN_VALUE;
     }
 
     // Simple POJO for returning (timestamp, peak)
@@ -251,107 +732,143 @@ public class SteamService {
     // 4. Existing: getUserInfo(...)
     // ----------------------------------------------------------------
     public SteamUserResponse getUserInfo(String steamId64) {
+        return getUserInfoAsync(steamId64).block();
+    }
+
+    public Mono<SteamUserResponse> getUserInfoAsync(String steamId64) {
         return webClient.get()
                 .uri("/ISteamUser/GetPlayerSummaries/v2/?key={key}&steamids={id}", steamApiKey, steamId64)
                 .retrieve()
                 .bodyToMono(UserResponseWrapper.class)
-                .map(wrapper -> wrapper.getResponse().getPlayers().get(0))
-                .block();
+                .map(wrapper -> wrapper.getResponse().getPlayers().get(0));
     }
 
     // ----------------------------------------------------------------
     // 5. Caching Helper Methods for topGames
     // ----------------------------------------------------------------
-    private List<SteamGameResponse> loadTopGamesCache() {
+    /**
+     * Read the latest top games snapshot whatever its age, from memory first and from disk on a miss.
+     */
+    @SuppressWarnings("unchecked")
+    private CachedSnapshot<List<SteamGameResponse>> readTopGamesCache() {
+        CachedSnapshot<List<SteamGameResponse>> snapshot = cacheManager.getCache(CacheConfig.TOP_GAMES)
+                .get(TOP_GAMES_KEY, CachedSnapshot.class);
+        return snapshot != null ? snapshot : readTopGamesFile();
+    }
+
+    /**
+     * Same as {@link #readTopGamesCache()}, the disk read on a memory miss running on the bounded elastic scheduler.
+     * @return The snapshot, empty if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<CachedSnapshot<List<SteamGameResponse>>> readTopGamesCacheAsync() {
+        return Mono.defer(() -> {
+            CachedSnapshot<List<SteamGameResponse>> snapshot = cacheManager.getCache(CacheConfig.TOP_GAMES)
+                    .get(TOP_GAMES_KEY, CachedSnapshot.class);
+            return snapshot != null
+                    ? Mono.just(snapshot)
+                    : Mono.fromCallable(this::readTopGamesFile).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Read the latest top games snapshot from disk into the memory cache.
+     */
+    private CachedSnapshot<List<SteamGameResponse>> readTopGamesFile() {
         try {
             File cacheDir = new File(TOP_GAMES_CACHE_DIR);
-            if (!cacheDir.exists()) {
-                cacheDir.mkdirs();
-                return null;
-            }
-            File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (files == null || files.length == 0) {
-                return null;
-            }
-            // Find the most recent file
-            File latestFile = Files.list(Paths.get(TOP_GAMES_CACHE_DIR))
-                    .map(path -> path.toFile())
-                    .max(Comparator.comparingLong(File::lastModified))
-                    .orElse(null);
-            if (latestFile == null) {
+            SnapshotManifest.Entry latest = snapshotManifest.resolve(cacheDir, TOP_GAMES_PREFIX);
+            if (latest == null) {
                 return null;
             }
-            long age = System.currentTimeMillis() - latestFile.lastModified();
-            if (age > TOP_GAMES_CACHE_DURATION) {
-                return null;
-            }
-            return objectMapper.readValue(latestFile, new TypeReference<List<SteamGameResponse>>() {});
+            List<SteamGameResponse> games = cacheCodec.read(new File(cacheDir, latest.file()), new TypeReference<List<SteamGameResponse>>() {});
+            CachedSnapshot<List<SteamGameResponse>> snapshot = new CachedSnapshot<>(games, latest.writtenAt(), false);
+            cacheManager.getCache(CacheConfig.TOP_GAMES).put(TOP_GAMES_KEY, snapshot);
+            return snapshot;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void saveTopGamesCache(List<SteamGameResponse> games) {
+    private CachedSnapshot<List<SteamGameResponse>> saveTopGamesCache(List<SteamGameResponse> games) {
+        long now = System.currentTimeMillis();
         try {
             File cacheDir = new File(TOP_GAMES_CACHE_DIR);
             if (!cacheDir.exists()) {
                 cacheDir.mkdirs();
             }
-            String filename = "topGames_" + System.currentTimeMillis() + ".json";
-            File file = new File(cacheDir, filename);
-            objectMapper.writeValue(file, games);
+            String filename = TOP_GAMES_PREFIX + now + cacheCodec.extension();
+            cacheCodec.write(new File(cacheDir, filename), games);
+            snapshotManifest.update(cacheDir, filename, now);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        peakHistoryStore.append(now, games);
+        peakHistoryIndex.append(now, games);
+        livePlayerIndex.publish(games);
+        CachedSnapshot<List<SteamGameResponse>> snapshot = new CachedSnapshot<>(games, now, false);
+        cacheManager.getCache(CacheConfig.TOP_GAMES).put(TOP_GAMES_KEY, snapshot);
+        return snapshot;
     }
 
     // ----------------------------------------------------------------
     // 6. Caching Helper Methods for gameDetails
     // ----------------------------------------------------------------
-    private SteamGameDetails loadGameDetailsCache(Long appId) {
+    /**
+     * Read the latest details snapshot of a game whatever its age, from memory first and from disk
+     * on a miss, the disk read running on the bounded elastic scheduler.
+     * @return The snapshot, empty if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<CachedSnapshot<SteamGameDetails>> readGameDetailsCacheAsync(Long appId) {
+        return Mono.defer(() -> {
+            CachedSnapshot<SteamGameDetails> snapshot = cacheManager.getCache(CacheConfig.GAME_DETAILS)
+                    .get(appId, CachedSnapshot.class);
+            return snapshot != null
+                    ? Mono.just(snapshot)
+                    : Mono.fromCallable(() -> readGameDetailsFile(appId)).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Read the latest details snapshot of a game from disk into the memory cache.
+     */
+    private CachedSnapshot<SteamGameDetails> readGameDetailsFile(Long appId) {
         try {
-            String dirPath = GAME_DETAILS_CACHE_DIR + appId + "/";
-            File cacheDir = new File(dirPath);
-            if (!cacheDir.exists()) {
-                cacheDir.mkdirs();
-                return null;
-            }
-            File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (files == null || files.length == 0) {
-                return null;
-            }
-            File latestFile = Files.list(Paths.get(dirPath))
-                    .map(path -> path.toFile())
-                    .max(Comparator.comparingLong(File::lastModified))
-                    .orElse(null);
-            if (latestFile == null) {
-                return null;
-            }
-            long age = System.currentTimeMillis() - latestFile.lastModified();
-            if (age > GAME_DETAILS_CACHE_DURATION) {
+            File cacheDir = new File(GAME_DETAILS_CACHE_DIR + appId + "/");
+            SnapshotManifest.Entry latest = snapshotManifest.resolve(cacheDir, GAME_DETAILS_PREFIX);
+            if (latest == null) {
                 return null;
             }
-            return objectMapper.readValue(latestFile, SteamGameDetails.class);
+            SteamGameDetails details = cacheCodec.read(new File(cacheDir, latest.file()), SteamGameDetails.class);
+            // Older snapshots persisted the player count; it is taken from the current top games when served
+            details.setPlayerCount(null);
+            CachedSnapshot<SteamGameDetails> snapshot = new CachedSnapshot<>(details, latest.writtenAt(), false);
+            cacheManager.getCache(CacheConfig.GAME_DETAILS).put(appId, snapshot);
+            return snapshot;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void saveGameDetailsCache(Long appId, SteamGameDetails details) {
+    private CachedSnapshot<SteamGameDetails> saveGameDetailsCache(Long appId, SteamGameDetails details) {
+        long now = System.currentTimeMillis();
         try {
-            String dirPath = GAME_DETAILS_CACHE_DIR + appId + "/";
-            File cacheDir = new File(dirPath);
-            if (!cacheDir.exists()) {
-                cacheDir.mkdirs();
-            }
-            String filename = "details_" + System.currentTimeMillis() + ".json";
-            File file = new File(cacheDir, filename);
-            objectMapper.writeValue(file, details);
+            // Unchanged details are not written again, the latest snapshot is only marked as fresh.
+            // The player count changes on every top games refresh: it is neither cached nor persisted,
+            // otherwise no two snapshots would ever be identical
+            details.setPlayerCount(null);
+            File cacheDir = new File(GAME_DETAILS_CACHE_DIR + appId + "/");
+            snapshotManifest.write(cacheDir, GAME_DETAILS_PREFIX, GAME_DETAILS_PREFIX + now + cacheCodec.extension(),
+                    cacheCodec.encode(details), now);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        CachedSnapshot<SteamGameDetails> snapshot = new CachedSnapshot<>(details, now, false);
+        cacheManager.getCache(CacheConfig.GAME_DETAILS).put(appId, snapshot);
+        return snapshot;
     }
 
     // ----------------------------------------------------------------
@@ -386,33 +903,7 @@ public class SteamService {
      * @return The formatted price string or "Price unavailable" if not found
      */
     public String getGamePrice(Long appId) {
-        try {
-            Map<String, Map<String, Object>> detailsResponse = webClient.get()
-                    .uri("https://store.steampowered.com/api/appdetails?appids={appId}&cc=us&filters=price_overview", appId)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, Object>>>() {})
-                    .block();
-
-            if (detailsResponse != null && detailsResponse.containsKey(appId.toString())) {
-                Map<String, Object> responseData = detailsResponse.get(appId.toString());
-                if (responseData.containsKey("data") && responseData.get("data") instanceof Map) {
-                    Map<String, Object> gameData = (Map<String, Object>) responseData.get("data");
-                    
-                    if (gameData.containsKey("price_overview")) {
-                        Map<String, Object> priceData = (Map<String, Object>) gameData.get("price_overview");
-                        if (priceData != null && priceData.containsKey("final_formatted")) {
-                            return (String) priceData.get("final_formatted");
-                        }
-                    } else if (gameData.containsKey("is_free") && (Boolean) gameData.get("is_free")) {
-                        return "Free";
-                    }
-                }
-            }
-        } catch (Exception e) {
-            // Log the error and return default value
-            e.printStackTrace();
-        }
-        
-        return "Price unavailable";
+        String price = priceBatcher.fetchPrice(appId).block();
+        return price != null ? price : SteamPriceBatcher.PRICE_UNAVAILABLE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ch.manajos.manajos.utils;
+
+/**
+ * A request parameter is invalid, e.g. a non-positive bucket count; answered with 400 Bad Request.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,75 @@
+package ch.manajos.manajos.utils;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * After {@code failureThreshold} failed calls in a row the breaker opens and rejects every call
+ * for {@code openDuration}. It then lets a single probe call through: a success closes it again,
+ * a failure opens it for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return true if a call may go through; every permitted call must be ended by
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancel()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+        probeInFlight = false;
+    }
+
+    /**
+     * A permitted call ended without an outcome, e.g. cancelled or failed for a reason unrelated to the host;
+     * lets another probe through when half-open.
+     */
+    public synchronized void onCancel() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,11 @@
+package ch.manajos.manajos.utils;
+
+/**
+ * Steam has no details for an appId, e.g. it does not exist or is not a game.
+ */
+public class GameNotFoundException extends RuntimeException {
+
+    public GameNotFoundException(Long appId) {
+        super("Game not found: " + appId);
+    }
+}
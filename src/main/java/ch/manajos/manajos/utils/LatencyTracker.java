@@ -0,0 +1,50 @@
+package ch.manajos.manajos.utils;
+
+import java.util.Arrays;
+
+/**
+ * Percentile of the latest call latencies, kept in a fixed-size ring.
+ * The percentile is recomputed every few samples rather than on every read.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final double percentile;
+    private int count;
+    private int next;
+    private volatile long cachedNanos = -1;
+
+    /**
+     * @param window Number of latest samples considered
+     * @param percentile The tracked percentile, e.g. 0.95
+     */
+    public LatencyTracker(int window, double percentile) {
+        this.samples = new long[window];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (next % RECOMPUTE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            cachedNanos = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+        }
+    }
+
+    /**
+     * @return The tracked percentile in nanoseconds, or -1 while fewer than minSamples were recorded
+     */
+    public long percentileNanos(int minSamples) {
+        synchronized (this) {
+            if (count < minSamples) {
+                return -1;
+            }
+        }
+        return cachedNanos;
+    }
+}
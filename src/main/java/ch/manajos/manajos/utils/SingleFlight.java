@@ -0,0 +1,78 @@
+package ch.manajos.manajos.utils;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same resource.
+ * The first caller for a key starts the loader; every caller arriving while it is still
+ * running awaits the same result instead of starting its own upstream fetch.
+ * Keys are free-form, e.g. "topGames" or "details:730".
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run the loader for the given key, or join the load already in flight for it.
+     * Cancelling one subscriber does not cancel the shared load.
+     * @param key The resource key
+     * @param loader Supplies the load to run when no load is in flight
+     * @return The shared result, empty if the loader completed empty
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String key, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                existing = future;
+                Mono<T> source;
+                try {
+                    source = loader.get();
+                } catch (RuntimeException e) {
+                    source = Mono.error(e);
+                }
+                source.subscribe(
+                        value -> complete(key, future, value),
+                        error -> {
+                            inFlight.remove(key, future);
+                            future.completeExceptionally(error);
+                        },
+                        () -> complete(key, future, null));
+            }
+            return Mono.fromFuture((CompletableFuture<T>) (CompletableFuture<?>) existing, true);
+        });
+    }
+
+    /**
+     * Run the loader for the given key without waiting for it, e.g. to renew a stale snapshot.
+     * Nothing is started if a load for the key is already running; a failure is only logged.
+     */
+    public <T> void executeInBackground(String key, Supplier<Mono<T>> loader) {
+        if (isInFlight(key)) {
+            return;
+        }
+        execute(key, loader)
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        value -> {},
+                        e -> System.err.println("Background refresh of " + key + " failed: " + e.getMessage()));
+    }
+
+    /**
+     * @return true if a load is currently running for the key
+     */
+    public boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    private void complete(String key, CompletableFuture<Object> future, Object value) {
+        inFlight.remove(key, future);
+        future.complete(value);
+    }
+}
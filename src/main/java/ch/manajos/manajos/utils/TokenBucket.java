@@ -0,0 +1,75 @@
+package ch.manajos.manajos.utils;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket refilled at a constant rate up to a burst capacity.
+ * Callers never block a thread: a caller that finds the bucket empty reserves the next token
+ * anyway and is delayed until that token is due, so waiting callers are served in arrival order.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    // Source of System.nanoTime() style timestamps, replaced in tests
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond Tokens added per second
+     * @param burst Maximum number of tokens, i.e. of calls allowed back to back after an idle period
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.tokensPerNano = ratePerSecond / Duration.ofSeconds(1).toNanos();
+        this.capacity = burst;
+        this.tokens = burst;
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take one token, waiting for it if needed. The token is only taken on subscription,
+     * and given back if the subscriber cancels while waiting, so later callers are not delayed for it.
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long waitNanos = reserve();
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+            return Mono.delay(Duration.ofNanos(waitNanos)).then().doOnCancel(this::release);
+        });
+    }
+
+    /**
+     * Take one token, possibly ahead of time.
+     * @return The time until the taken token is due, in nanoseconds
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Give back a reserved token that will not be used.
+     */
+    synchronized void release() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano + 1);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,30 @@
+package ch.manajos.manajos.utils;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An upstream host could not serve a call: transient failures persisted after retries,
+ * or its circuit breaker is open.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    public UpstreamUnavailableException(String host, String reason) {
+        super("Upstream " + host + " unavailable: " + reason);
+    }
+
+    public UpstreamUnavailableException(String host, Throwable cause) {
+        super("Upstream " + host + " unavailable: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * @return true if the error, or one of its causes, means upstream could not answer in time
+     */
+    public static boolean isUpstreamFailure(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof UpstreamUnavailableException || e instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package ch.manajos.manajos.benchmark;
+
+import ch.manajos.manajos.cache.CacheCodec;
+import ch.manajos.manajos.dto.SteamGameDetails;
+import ch.manajos.manajos.dto.SteamGameResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cache codecs on the snapshots of src/main/resources/cache:
+ * read and write time of a top games and a game details snapshot, and their size on disk (printed at setup).
+ * Run from the project root with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main CacheCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CacheCodecBenchmark {
+
+    private static final String CACHE_DIR = "src/main/resources/cache/";
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private CacheCodec codec;
+    private List<SteamGameResponse> topGames;
+    private SteamGameDetails gameDetails;
+    private File topGamesFile;
+    private File gameDetailsFile;
+
+    @Setup
+    public void setup() throws IOException {
+        // The repository snapshots are JSON, the read side of any codec decodes them
+        codec = new CacheCodec(format, gzip);
+        topGames = codec.read(latest(new File(CACHE_DIR + "topGames")), new TypeReference<List<SteamGameResponse>>() {});
+        File[] appDirs = new File(CACHE_DIR + "gameDetails").listFiles(File::isDirectory);
+        gameDetails = codec.read(latest(appDirs[0]), SteamGameDetails.class);
+
+        File dir = Files.createTempDirectory("cache-codec").toFile();
+        dir.deleteOnExit();
+        topGamesFile = new File(dir, "topGames" + codec.extension());
+        gameDetailsFile = new File(dir, "details" + codec.extension());
+        codec.write(topGamesFile, topGames);
+        codec.write(gameDetailsFile, gameDetails);
+        topGamesFile.deleteOnExit();
+        gameDetailsFile.deleteOnExit();
+        System.out.printf("%n%s: topGames %d bytes, gameDetails %d bytes%n",
+                codec.extension(), topGamesFile.length(), gameDetailsFile.length());
+    }
+
+    @Benchmark
+    public List<SteamGameResponse> readTopGames() throws IOException {
+        return codec.read(topGamesFile, new TypeReference<List<SteamGameResponse>>() {});
+    }
+
+    @Benchmark
+    public void writeTopGames() throws IOException {
+        codec.write(topGamesFile, topGames);
+    }
+
+    @Benchmark
+    public SteamGameDetails readGameDetails() throws IOException {
+        return codec.read(gameDetailsFile, SteamGameDetails.class);
+    }
+
+    @Benchmark
+    public void writeGameDetails() throws IOException {
+        codec.write(gameDetailsFile, gameDetails);
+    }
+
+    private static File latest(File dir) {
+        return Arrays.stream(dir.listFiles((parent, name) -> !name.equals("manifest.json")))
+                .max(Comparator.comparingLong(File::lastModified))
+                .orElseThrow();
+    }
+}
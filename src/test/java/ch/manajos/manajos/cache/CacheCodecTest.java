@@ -0,0 +1,127 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import ch.manajos.manajos.dto.UpcomingGameResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static ch.manajos.manajos.cache.PeakHistoryStoreTest.game;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheCodecTest {
+
+    private static final String[] FORMATS = {"json", "smile", "cbor"};
+    private static final TypeReference<List<SteamGameResponse>> TOP_GAMES = new TypeReference<>() {};
+
+    @TempDir
+    Path dir;
+
+    private static UpcomingGameResponse upcomingGame() {
+        UpcomingGameResponse game = new UpcomingGameResponse();
+        game.setId(42L);
+        game.setName("Upcoming");
+        game.setReleaseDate(LocalDate.of(2026, 11, 20));
+        game.setPrice("$59.99");
+        return game;
+    }
+
+    @Test
+    void everyFormatRoundTrips() throws IOException {
+        List<SteamGameResponse> topGames = List.of(game(730, 1_500_000, 1), game(570, 700_000, 2));
+        for (String format : FORMATS) {
+            for (boolean gzip : new boolean[] {false, true}) {
+                CacheCodec codec = new CacheCodec(format, gzip);
+                File topGamesFile = dir.resolve("topGames_1000" + codec.extension()).toFile();
+                File upcomingFile = dir.resolve("upcomingGames" + codec.extension()).toFile();
+
+                codec.write(topGamesFile, topGames);
+                codec.write(upcomingFile, List.of(upcomingGame()));
+
+                assertEquals(topGames, codec.read(topGamesFile, TOP_GAMES), codec.extension());
+                assertEquals(upcomingGame(), codec.read(upcomingFile, UpcomingGameResponse[].class)[0], codec.extension());
+            }
+        }
+    }
+
+    @Test
+    void extensionMatchesTheCodec() {
+        assertEquals(".json", new CacheCodec("json", false).extension());
+        assertEquals(".sml.gz", new CacheCodec("smile", true).extension());
+        assertEquals(".cbor", new CacheCodec(" CBOR ", false).extension());
+        assertThrows(IllegalArgumentException.class, () -> new CacheCodec("xml", false));
+    }
+
+    @Test
+    void encodingsStartWithTheirMagicBytes() throws IOException {
+        List<SteamGameResponse> topGames = List.of(game(730, 1, 1));
+
+        assertEquals('[', new CacheCodec("json", false).encode(topGames)[0]);
+        byte[] smile = new CacheCodec("smile", false).encode(topGames);
+        assertEquals(":)\n", new String(smile, 0, 3, StandardCharsets.US_ASCII));
+        assertTrue((new CacheCodec("cbor", false).encode(topGames)[0] & 0xff) >= 0x80);
+        byte[] gzip = new CacheCodec("cbor", true).encode(topGames);
+        assertEquals(0x1f, gzip[0] & 0xff);
+        assertEquals(0x8b, gzip[1] & 0xff);
+    }
+
+    @Test
+    void readDetectsTheFormatWhateverTheConfiguredCodec() throws IOException {
+        List<SteamGameResponse> topGames = List.of(game(730, 1_500_000, 1));
+        for (String written : FORMATS) {
+            for (boolean gzip : new boolean[] {false, true}) {
+                File file = dir.resolve("snapshot_" + written + gzip).toFile();
+                new CacheCodec(written, gzip).write(file, topGames);
+                for (String reader : FORMATS) {
+                    assertEquals(topGames, new CacheCodec(reader, !gzip).read(file, TOP_GAMES), written + " read as " + reader);
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsPlainJsonWrittenBeforeTheCodec() throws IOException {
+        // Snapshots written before the codec existed: pretty-printed JSON, leading whitespace included
+        File file = dir.resolve("topGames_1000.json").toFile();
+        Files.writeString(file.toPath(), "\n  [ {\n    \"appid\" : 730,\n    \"name\" : \"Counter-Strike 2\",\n"
+                + "    \"peak_in_game\" : 1500000,\n    \"rank\" : 1\n  } ]\n");
+
+        List<SteamGameResponse> topGames = new CacheCodec("smile", true).read(file, TOP_GAMES);
+
+        assertEquals(1, topGames.size());
+        assertEquals(730L, topGames.get(0).getAppId());
+        assertEquals("Counter-Strike 2", topGames.get(0).getName());
+        assertEquals(1_500_000, topGames.get(0).getPlayerCount());
+    }
+
+    @Test
+    void findReturnsTheLatestVariantOfASnapshot() throws IOException {
+        File json = dir.resolve("upcomingGames.json").toFile();
+        File smile = dir.resolve("upcomingGames.sml.gz").toFile();
+        CacheCodec codec = new CacheCodec("json", false);
+
+        assertNull(codec.find(dir.toFile(), "upcomingGames"));
+
+        codec.write(json, List.of(upcomingGame()));
+        new CacheCodec("smile", true).write(smile, List.of(upcomingGame()));
+        json.setLastModified(1000L);
+        smile.setLastModified(2000L);
+
+        assertEquals(smile, codec.find(dir.toFile(), "upcomingGames"));
+
+        json.setLastModified(3000L);
+
+        assertEquals(json, codec.find(dir.toFile(), "upcomingGames"));
+    }
+}
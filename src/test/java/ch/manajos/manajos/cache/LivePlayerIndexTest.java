@@ -0,0 +1,133 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.manajos.manajos.cache.PeakHistoryStoreTest.game;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LivePlayerIndexTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * AppIds landing on the same home slot of a table of the given capacity, with the table's own hash.
+     */
+    private static List<Long> colliding(int capacity, int count) {
+        List<Long> appIds = new ArrayList<>();
+        for (long appId = 1; appIds.size() < count; appId++) {
+            long hash = appId * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (capacity - 1)) == 0) {
+                appIds.add(appId);
+            }
+        }
+        return appIds;
+    }
+
+    @Test
+    void missesAreUnknown() {
+        LivePlayerIndex index = new LivePlayerIndex();
+
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(730));
+        assertEquals(new LivePlayerIndex.Entry(LivePlayerIndex.UNKNOWN, LivePlayerIndex.UNKNOWN, 0), index.entry(730));
+
+        index.publish(List.of(game(730, 1_000_000, 1)));
+
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(570));
+        assertEquals(LivePlayerIndex.UNKNOWN, index.rank(570));
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(0));
+    }
+
+    @Test
+    void looksUpPublishedGames() {
+        LivePlayerIndex index = new LivePlayerIndex();
+        long before = System.currentTimeMillis();
+
+        index.publish(List.of(game(730, 1_000_000, 1), game(570, 600_000, 2)));
+
+        assertEquals(1_000_000, index.playerCount(730));
+        assertEquals(2, index.rank(570));
+        LivePlayerIndex.Entry entry = index.entry(570);
+        assertEquals(600_000, entry.playerCount());
+        assertEquals(2, entry.rank());
+        assertTrue(entry.publishedAt() >= before);
+    }
+
+    @Test
+    void collidingAppIdsAreAllFound() {
+        LivePlayerIndex index = new LivePlayerIndex();
+        // Eight games get a table of 16 slots
+        List<Long> appIds = colliding(16, 8);
+        List<SteamGameResponse> games = new ArrayList<>();
+        for (int i = 0; i < appIds.size(); i++) {
+            games.add(game(appIds.get(i), 100 + i, i + 1));
+        }
+
+        index.publish(games);
+
+        for (int i = 0; i < appIds.size(); i++) {
+            assertEquals(100 + i, index.playerCount(appIds.get(i)));
+            assertEquals(i + 1, index.rank(appIds.get(i)));
+        }
+        // A miss walks the whole probe sequence of the shared slot
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(colliding(16, 9).get(8)));
+    }
+
+    @Test
+    void growsWhileReadingASnapshotFile() throws IOException {
+        List<SteamGameResponse> games = new ArrayList<>();
+        for (int rank = 1; rank <= 1000; rank++) {
+            games.add(game(rank * 10L, 1_000_000 - rank, rank));
+        }
+        CacheCodec codec = new CacheCodec("cbor", true);
+        File snapshot = dir.resolve("topGames_1000" + codec.extension()).toFile();
+        codec.write(snapshot, games);
+        LivePlayerIndex index = new LivePlayerIndex();
+
+        index.publish(codec, snapshot);
+
+        for (int rank = 1; rank <= 1000; rank++) {
+            assertEquals(1_000_000 - rank, index.playerCount(rank * 10L));
+            assertEquals(rank, index.rank(rank * 10L));
+        }
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(5));
+    }
+
+    @Test
+    void publishReplacesThePreviousContent() {
+        LivePlayerIndex index = new LivePlayerIndex();
+        index.publish(List.of(game(730, 1_000_000, 1), game(570, 600_000, 2)));
+
+        index.publish(List.of(game(570, 700_000, 1)));
+
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(730));
+        assertEquals(700_000, index.playerCount(570));
+        assertEquals(1, index.rank(570));
+    }
+
+    @Test
+    void skipsGamesWithoutAppIdAndKeepsTheLastDuplicate() {
+        SteamGameResponse noAppId = new SteamGameResponse();
+        noAppId.setPlayerCount(5);
+        SteamGameResponse noCount = new SteamGameResponse();
+        noCount.setAppId(440L);
+        noCount.setRank(3);
+        LivePlayerIndex index = new LivePlayerIndex();
+
+        index.publish(List.of(noAppId, game(730, 1, 1), game(730, 2, 2), noCount));
+
+        assertEquals(2, index.playerCount(730));
+        assertEquals(2, index.rank(730));
+        assertEquals(LivePlayerIndex.UNKNOWN, index.playerCount(440));
+        assertEquals(3, index.rank(440));
+    }
+}
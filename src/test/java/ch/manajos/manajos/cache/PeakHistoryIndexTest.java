@@ -0,0 +1,87 @@
+package ch.manajos.manajos.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.manajos.manajos.cache.PeakHistoryStoreTest.game;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeakHistoryIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private PeakHistoryStore store() {
+        return new PeakHistoryStore(dir.resolve("peaks.bin").toString(), new CacheCodec("json", false));
+    }
+
+    private static List<String> visit(PeakHistoryIndex index, long appId, long fromTimestamp) {
+        List<String> points = new ArrayList<>();
+        index.visit(appId, fromTimestamp, (timestamp, peak) -> points.add(timestamp + ":" + peak));
+        return points;
+    }
+
+    private static List<String> visitMerged(PeakHistoryIndex index, long[] appIds, long fromTimestamp) {
+        List<String> points = new ArrayList<>();
+        index.visitMerged(appIds, fromTimestamp, (timestamp, app, peak) -> points.add(timestamp + ":" + app + ":" + peak));
+        return points;
+    }
+
+    @Test
+    void rebuildLoadsTheStore() {
+        PeakHistoryStore store = store();
+        store.append(1000L, List.of(game(730, 10, 1), game(570, 5, 2)));
+        store.append(2000L, List.of(game(730, 20, 1)));
+        PeakHistoryIndex index = new PeakHistoryIndex(store);
+
+        index.rebuild();
+
+        assertEquals(List.of("1000:10", "2000:20"), visit(index, 730, Long.MIN_VALUE));
+        assertEquals(List.of("1000:5"), visit(index, 570, Long.MIN_VALUE));
+        assertEquals(2, index.count(730, Long.MIN_VALUE));
+    }
+
+    @Test
+    void visitStartsAtTheCutoff() {
+        PeakHistoryIndex index = new PeakHistoryIndex(store());
+        for (long timestamp = 1; timestamp <= 50; timestamp++) {
+            index.append(timestamp * 1000, List.of(game(730, (int) timestamp, 1)));
+        }
+
+        assertEquals(List.of("49000:49", "50000:50"), visit(index, 730, 48_500));
+        assertEquals(2, index.count(730, 48_500));
+        assertEquals(49_000, index.firstTimestamp(730, 48_500));
+        assertEquals(Long.MIN_VALUE, index.firstTimestamp(730, 60_000));
+        assertTrue(visit(index, 570, Long.MIN_VALUE).isEmpty());
+    }
+
+    @Test
+    void outOfOrderAppendsStaySorted() {
+        PeakHistoryIndex index = new PeakHistoryIndex(store());
+        index.append(3000L, List.of(game(730, 30, 1)));
+        index.append(1000L, List.of(game(730, 10, 1)));
+        index.append(2000L, List.of(game(730, 20, 1)));
+
+        assertEquals(List.of("1000:10", "2000:20", "3000:30"), visit(index, 730, Long.MIN_VALUE));
+    }
+
+    @Test
+    void visitMergedInterleavesSeriesInTimestampOrder() {
+        PeakHistoryIndex index = new PeakHistoryIndex(store());
+        index.append(1000L, List.of(game(730, 10, 1), game(570, 5, 2)));
+        index.append(2000L, List.of(game(570, 6, 1)));
+        index.append(3000L, List.of(game(730, 30, 1), game(440, 1, 2)));
+
+        // Points sharing a timestamp follow the order of the requested appIds
+        assertEquals(List.of("1000:0:5", "1000:1:10", "2000:0:6", "3000:1:30"),
+                visitMerged(index, new long[] {570, 730, 999}, Long.MIN_VALUE));
+        assertEquals(List.of("2000:0:6", "3000:1:30"),
+                visitMerged(index, new long[] {570, 730}, 1500));
+        assertTrue(visitMerged(index, new long[] {999}, Long.MIN_VALUE).isEmpty());
+    }
+}
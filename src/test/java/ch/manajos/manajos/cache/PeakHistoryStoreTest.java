@@ -0,0 +1,141 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.dto.SteamGameResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeakHistoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private PeakHistoryStore store() {
+        return new PeakHistoryStore(dir.resolve("peakHistory/peaks.bin").toString(), new CacheCodec("json", false));
+    }
+
+    static SteamGameResponse game(long appId, int peak, int rank) {
+        SteamGameResponse game = new SteamGameResponse();
+        game.setAppId(appId);
+        game.setPlayerCount(peak);
+        game.setRank(rank);
+        return game;
+    }
+
+    private static List<long[]> scan(PeakHistoryStore store, long fromTimestamp) {
+        List<long[]> records = new ArrayList<>();
+        store.scan(fromTimestamp, (timestamp, appId, peak, rank) -> records.add(new long[] {timestamp, appId, peak, rank}));
+        return records;
+    }
+
+    @Test
+    void writesFixedWidthBigEndianRecords() throws IOException {
+        PeakHistoryStore store = store();
+
+        store.append(1000L, List.of(game(730, 1_500_000, 1), game(570, 700_000, 2)));
+
+        byte[] content = Files.readAllBytes(dir.resolve("peakHistory/peaks.bin"));
+        assertEquals(2 * PeakHistoryStore.RECORD_SIZE, content.length);
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        assertEquals(1000L, buffer.getLong());
+        assertEquals(730L, buffer.getLong());
+        assertEquals(1_500_000, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(1000L, buffer.getLong());
+        assertEquals(570L, buffer.getLong());
+    }
+
+    @Test
+    void scanReturnsAppendedRecordsInOrder() {
+        PeakHistoryStore store = store();
+        store.append(1000L, List.of(game(730, 10, 1), game(570, 5, 2)));
+        store.append(2000L, List.of(game(730, 20, 1)));
+
+        List<long[]> records = scan(store, Long.MIN_VALUE);
+
+        assertEquals(3, records.size());
+        assertArrayEquals(new long[] {1000L, 730, 10, 1}, records.get(0));
+        assertArrayEquals(new long[] {1000L, 570, 5, 2}, records.get(1));
+        assertArrayEquals(new long[] {2000L, 730, 20, 1}, records.get(2));
+    }
+
+    @Test
+    void scanSeeksToTheCutoff() {
+        PeakHistoryStore store = store();
+        for (long timestamp = 1; timestamp <= 100; timestamp++) {
+            store.append(timestamp * 1000, List.of(game(730, (int) timestamp, 1)));
+        }
+
+        List<long[]> records = scan(store, 42_500);
+
+        assertEquals(58, records.size());
+        assertEquals(43_000, records.get(0)[0]);
+        assertTrue(scan(store, 101_000).isEmpty());
+    }
+
+    @Test
+    void scanOfAMissingStoreVisitsNothing() {
+        PeakHistoryStore store = store();
+
+        assertFalse(store.exists());
+        assertTrue(scan(store, Long.MIN_VALUE).isEmpty());
+    }
+
+    @Test
+    void appendDropsAPartialRecordLeftByAnInterruptedWrite() throws IOException {
+        PeakHistoryStore store = store();
+        store.append(1000L, List.of(game(730, 10, 1)));
+        Files.write(dir.resolve("peakHistory/peaks.bin"), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        store.append(2000L, List.of(game(570, 5, 1)));
+
+        List<long[]> records = scan(store, Long.MIN_VALUE);
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[] {2000L, 570, 5, 1}, records.get(1));
+    }
+
+    @Test
+    void importsSnapshotsInTimestampOrder() throws IOException {
+        File topGames = Files.createDirectories(dir.resolve("topGames")).toFile();
+        CacheCodec json = new CacheCodec("json", false);
+        json.write(new File(topGames, "topGames_2000.json"), List.of(game(730, 20, 1)));
+        new CacheCodec("smile", true).write(new File(topGames, "topGames_1000.sml.gz"), List.of(game(730, 10, 1), game(570, 5, 2)));
+        // Neither a snapshot without a timestamp nor another file is imported
+        json.write(new File(topGames, "topGames_latest.json"), List.of(game(1, 1, 1)));
+        json.write(new File(topGames, "manifest.json"), List.of());
+        PeakHistoryStore store = store();
+
+        assertEquals(2, store.importSnapshots(topGames));
+
+        List<long[]> records = scan(store, Long.MIN_VALUE);
+        assertEquals(3, records.size());
+        assertArrayEquals(new long[] {1000L, 730, 10, 1}, records.get(0));
+        assertArrayEquals(new long[] {1000L, 570, 5, 2}, records.get(1));
+        assertArrayEquals(new long[] {2000L, 730, 20, 1}, records.get(2));
+        assertFalse(Files.exists(dir.resolve("peakHistory/peaks.bin.import")));
+    }
+
+    @Test
+    void importIsSkippedOnceTheStoreExists() throws IOException {
+        File topGames = Files.createDirectories(dir.resolve("topGames")).toFile();
+        new CacheCodec("json", false).write(new File(topGames, "topGames_1000.json"), List.of(game(730, 10, 1)));
+        PeakHistoryStore store = store();
+        store.append(500L, List.of(game(570, 5, 1)));
+
+        assertEquals(0, store.importSnapshots(topGames));
+        assertEquals(1, scan(store, Long.MIN_VALUE).size());
+    }
+}
@@ -0,0 +1,139 @@
+package ch.manajos.manajos.cache;
+
+import ch.manajos.manajos.config.CacheRetentionProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotCompactorTest {
+
+    private static final String PREFIX = "details_";
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path root;
+
+    private final long now = System.currentTimeMillis();
+    private final SnapshotManifest manifest = new SnapshotManifest();
+
+    private SnapshotCompactor compactor(int keepLatest, Duration maxAge) {
+        CacheRetentionProperties properties = new CacheRetentionProperties();
+        properties.setKeepLatest(keepLatest);
+        properties.setMaxAge(maxAge);
+        return new SnapshotCompactor(manifest, properties);
+    }
+
+    /**
+     * Write a snapshot named after a time {@code daysAgo} days in the past, recorded as the latest of its directory.
+     */
+    private String snapshot(Path dir, int daysAgo, String content) throws IOException {
+        long writtenAt = now - daysAgo * DAY;
+        String file = PREFIX + writtenAt + ".json";
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+        manifest.update(dir.toFile(), file, writtenAt);
+        return file;
+    }
+
+    private static Set<String> snapshots(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    void keepsTheLatestSnapshotsAndTheRecentOnes() throws IOException {
+        Path dir = root.resolve("730");
+        snapshot(dir, 100, "[1]");
+        snapshot(dir, 90, "[2]");
+        snapshot(dir, 80, "[3]");
+        String recent1 = snapshot(dir, 20, "[4]");
+        String recent2 = snapshot(dir, 10, "[5]");
+
+        int deleted = compactor(1, Duration.ofDays(30)).compact(dir.toFile(), PREFIX);
+
+        assertEquals(3, deleted);
+        assertEquals(Set.of(recent1, recent2), snapshots(dir));
+    }
+
+    @Test
+    void keepLatestRetainsOldSnapshots() throws IOException {
+        Path dir = root.resolve("730");
+        snapshot(dir, 100, "[1]");
+        String kept1 = snapshot(dir, 90, "[2]");
+        String kept2 = snapshot(dir, 80, "[3]");
+        String latest = snapshot(dir, 70, "[4]");
+
+        int deleted = compactor(3, Duration.ofDays(30)).compact(dir.toFile(), PREFIX);
+
+        assertEquals(1, deleted);
+        assertEquals(Set.of(kept1, kept2, latest), snapshots(dir));
+    }
+
+    @Test
+    void duplicatesOfANewerSnapshotAreDeletedWhateverTheirAge() throws IOException {
+        Path dir = root.resolve("730");
+        snapshot(dir, 3, "[1]");
+        String distinct = snapshot(dir, 2, "[2]");
+        String latest = snapshot(dir, 1, "[1]");
+
+        int deleted = compactor(10, Duration.ofDays(30)).compact(dir.toFile(), PREFIX);
+
+        assertEquals(1, deleted);
+        assertEquals(Set.of(distinct, latest), snapshots(dir));
+    }
+
+    @Test
+    void latestSnapshotIsNeverDeleted() throws IOException {
+        Path dir = root.resolve("730");
+        String latest = snapshot(dir, 200, "[1]");
+        // A newer-named file that the manifest does not consider the latest
+        Files.write(dir.resolve(PREFIX + (now - 150 * DAY) + ".json"), "[1]".getBytes(StandardCharsets.UTF_8));
+
+        int deleted = compactor(0, Duration.ofDays(30)).compact(dir.toFile(), PREFIX);
+
+        assertEquals(1, deleted);
+        assertEquals(Set.of(latest), snapshots(dir));
+    }
+
+    @Test
+    void compactAllVisitsEveryNamespace() throws IOException {
+        snapshot(root.resolve("730"), 100, "[1]");
+        String latest730 = snapshot(root.resolve("730"), 90, "[2]");
+        snapshot(root.resolve("570"), 100, "[1]");
+        String latest570 = snapshot(root.resolve("570"), 90, "[2]");
+
+        int deleted = compactor(1, Duration.ofDays(30)).compactAll(root.toFile(), PREFIX);
+
+        assertEquals(2, deleted);
+        assertEquals(Set.of(latest730), snapshots(root.resolve("730")));
+        assertEquals(Set.of(latest570), snapshots(root.resolve("570")));
+    }
+
+    @Test
+    void emptyOrMissingDirectoriesAreLeftAlone() throws IOException {
+        File empty = Files.createDirectories(root.resolve("730")).toFile();
+
+        assertEquals(0, compactor(1, Duration.ofDays(30)).compact(empty, PREFIX));
+        assertEquals(0, compactor(1, Duration.ofDays(30)).compactAll(root.resolve("missing").toFile(), PREFIX));
+    }
+
+    @Test
+    void contentHashIsTheHexSha256() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                SnapshotCompactor.contentHash(new byte[0]));
+    }
+}
@@ -0,0 +1,171 @@
+package ch.manajos.manajos.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotManifestTest {
+
+    private static final String PREFIX = "topGames_";
+
+    @TempDir
+    Path dir;
+
+    private static byte[] payload(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private SnapshotManifest.Entry manifestOnDisk() throws IOException {
+        return new ObjectMapper().readValue(dir.resolve(SnapshotManifest.MANIFEST_FILE).toFile(), SnapshotManifest.Entry.class);
+    }
+
+    private long snapshotCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX)).count();
+        }
+    }
+
+    @Test
+    void resolvesNothingInAnEmptyDirectory() {
+        assertNull(new SnapshotManifest().resolve(dir.toFile(), PREFIX));
+        assertFalse(Files.exists(dir.resolve(SnapshotManifest.MANIFEST_FILE)));
+    }
+
+    @Test
+    void writeRecordsTheSnapshotInTheManifest() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest();
+
+        String written = manifest.write(dir.toFile(), PREFIX, "topGames_1000.json", payload("[1]"), 1000L);
+
+        assertEquals("topGames_1000.json", written);
+        assertEquals("[1]", Files.readString(dir.resolve(written)));
+        SnapshotManifest.Entry entry = manifest.resolve(dir.toFile(), PREFIX);
+        assertEquals("topGames_1000.json", entry.file());
+        assertEquals(1000L, entry.writtenAt());
+        assertEquals(SnapshotCompactor.contentHash(payload("[1]")), entry.hash());
+        assertEquals(entry, manifestOnDisk());
+    }
+
+    @Test
+    void manifestIsReplacedWithoutLeavingTemporaryFiles() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest();
+
+        manifest.write(dir.toFile(), PREFIX, "topGames_1000.json", payload("[1]"), 1000L);
+        manifest.write(dir.toFile(), PREFIX, "topGames_2000.json", payload("[2]"), 2000L);
+
+        assertEquals("topGames_2000.json", manifestOnDisk().file());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void identicalContentIsNotWrittenAgain() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest();
+        manifest.write(dir.toFile(), PREFIX, "topGames_1000.json", payload("[1]"), 1000L);
+
+        String written = manifest.write(dir.toFile(), PREFIX, "topGames_2000.json", payload("[1]"), 2000L);
+
+        assertEquals("topGames_1000.json", written);
+        assertEquals(1, snapshotCount());
+        // The unchanged snapshot counts as fresh again
+        SnapshotManifest.Entry entry = manifest.resolve(dir.toFile(), PREFIX);
+        assertEquals("topGames_1000.json", entry.file());
+        assertEquals(2000L, entry.writtenAt());
+        assertEquals(2000L, manifestOnDisk().writtenAt());
+        assertEquals(2000L, dir.resolve("topGames_1000.json").toFile().lastModified());
+    }
+
+    @Test
+    void identicalContentIsDetectedForASnapshotFoundByAScan() throws IOException {
+        Files.write(dir.resolve("topGames_1000.json"), payload("[1]"));
+        SnapshotManifest manifest = new SnapshotManifest();
+
+        String written = manifest.write(dir.toFile(), PREFIX, "topGames_2000.json", payload("[1]"), 2000L);
+
+        assertEquals("topGames_1000.json", written);
+        assertEquals(1, snapshotCount());
+    }
+
+    @Test
+    void changedContentIsWrittenToTheNewFile() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest();
+        manifest.write(dir.toFile(), PREFIX, "topGames_1000.json", payload("[1]"), 1000L);
+
+        String written = manifest.write(dir.toFile(), PREFIX, "topGames_2000.json", payload("[2]"), 2000L);
+
+        assertEquals("topGames_2000.json", written);
+        assertEquals(2, snapshotCount());
+        assertEquals("topGames_2000.json", manifest.resolve(dir.toFile(), PREFIX).file());
+    }
+
+    @Test
+    void olderSnapshotNeverReplacesTheLatest() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest();
+        manifest.update(dir.toFile(), "topGames_2000.json", 2000L);
+
+        manifest.update(dir.toFile(), "topGames_1000.json", 1000L);
+
+        assertEquals("topGames_2000.json", manifest.resolve(dir.toFile(), PREFIX).file());
+        assertEquals("topGames_2000.json", manifestOnDisk().file());
+    }
+
+    @Test
+    void manifestIsReadBackAfterARestart() throws IOException {
+        new SnapshotManifest().write(dir.toFile(), PREFIX, "topGames_1000.json", payload("[1]"), 1000L);
+        // A newer file that is not the recorded latest must not be picked by the restarted instance
+        Files.write(dir.resolve("topGames_5000.json"), payload("[5]"));
+
+        SnapshotManifest.Entry entry = new SnapshotManifest().resolve(dir.toFile(), PREFIX);
+
+        assertEquals("topGames_1000.json", entry.file());
+        assertEquals(1000L, entry.writtenAt());
+    }
+
+    @Test
+    void directoryWithoutManifestIsScannedOnce() throws IOException {
+        File older = Files.write(dir.resolve("topGames_1000.json"), payload("[1]")).toFile();
+        File newer = Files.write(dir.resolve("topGames_2000.json"), payload("[2]")).toFile();
+        older.setLastModified(1000L);
+        newer.setLastModified(2000L);
+
+        SnapshotManifest.Entry entry = new SnapshotManifest().resolve(dir.toFile(), PREFIX);
+
+        assertEquals("topGames_2000.json", entry.file());
+        assertEquals(2000L, entry.writtenAt());
+        assertNull(entry.hash());
+        assertEquals("topGames_2000.json", manifestOnDisk().file());
+    }
+
+    @Test
+    void manifestPointingAtADeletedSnapshotIsIgnored() throws IOException {
+        new SnapshotManifest().write(dir.toFile(), PREFIX, "topGames_2000.json", payload("[2]"), 2000L);
+        Files.write(dir.resolve("topGames_1000.json"), payload("[1]"));
+        Files.delete(dir.resolve("topGames_2000.json"));
+
+        SnapshotManifest.Entry entry = new SnapshotManifest().resolve(dir.toFile(), PREFIX);
+
+        assertEquals("topGames_1000.json", entry.file());
+        assertEquals("topGames_1000.json", manifestOnDisk().file());
+    }
+
+    @Test
+    void parsesTheTimestampOfSnapshotNames() {
+        assertEquals(1740658015189L, SnapshotManifest.snapshotTimestamp(new File("topGames_1740658015189.json")));
+        assertEquals(1740658015189L, SnapshotManifest.snapshotTimestamp(new File("details_1740658015189.sml.gz")));
+        assertEquals(-1, SnapshotManifest.snapshotTimestamp(new File("manifest.json")));
+        assertEquals(-1, SnapshotManifest.snapshotTimestamp(new File("topGames_latest.json")));
+    }
+}
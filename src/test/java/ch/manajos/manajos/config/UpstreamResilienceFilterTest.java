@@ -0,0 +1,103 @@
+package ch.manajos.manajos.config;
+
+import ch.manajos.manajos.utils.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamResilienceFilterTest {
+
+    private static final ClientRequest REQUEST =
+            ClientRequest.create(HttpMethod.GET, URI.create("http://upstream.test/api")).build();
+
+    private final UpstreamResilienceFilter filter = new UpstreamResilienceFilter(properties());
+
+    private static ResilienceProperties properties() {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.setMaxRetries(0);
+        properties.setFailureThreshold(1);
+        // The breaker lets a probe through as soon as it opens
+        properties.setOpenDuration(Duration.ZERO);
+        properties.setHedgeEnabled(false);
+        return properties;
+    }
+
+    private Mono<ClientResponse> call(ExchangeFunction next) {
+        return filter.filter(REQUEST, filter.attemptFilter().apply(next));
+    }
+
+    private static ExchangeFunction respond(HttpStatus status) {
+        return request -> Mono.just(ClientResponse.create(status).build());
+    }
+
+    private void openBreaker() {
+        assertThrows(UpstreamUnavailableException.class, () -> call(respond(HttpStatus.SERVICE_UNAVAILABLE)).block());
+    }
+
+    @Test
+    void transientStatusOpensTheBreaker() {
+        ResilienceProperties properties = properties();
+        properties.setOpenDuration(Duration.ofMinutes(1));
+        UpstreamResilienceFilter breaking = new UpstreamResilienceFilter(properties);
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction failing = breaking.attemptFilter().apply(request -> {
+            calls.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+        });
+
+        assertThrows(UpstreamUnavailableException.class, () -> breaking.filter(REQUEST, failing).block());
+        UpstreamUnavailableException rejected = assertThrows(UpstreamUnavailableException.class,
+                () -> breaking.filter(REQUEST, failing).block());
+
+        assertTrue(rejected.getMessage().contains("circuit breaker open"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void nonTransientErrorOfAProbeReleasesIt() {
+        openBreaker();
+
+        assertThrows(IllegalStateException.class,
+                () -> call(request -> Mono.error(new IllegalStateException("limiter failure"))).block());
+
+        assertEquals(HttpStatus.OK, call(respond(HttpStatus.OK)).block().statusCode());
+    }
+
+    @Test
+    void emptyProbeReleasesIt() {
+        openBreaker();
+
+        call(request -> Mono.empty()).block();
+
+        assertEquals(HttpStatus.OK, call(respond(HttpStatus.OK)).block().statusCode());
+    }
+
+    @Test
+    void cancelledProbeReleasesIt() {
+        openBreaker();
+
+        call(request -> Mono.never()).subscribe().dispose();
+
+        assertEquals(HttpStatus.OK, call(respond(HttpStatus.OK)).block().statusCode());
+    }
+
+    @Test
+    void clientErrorIsPassedThroughAndClosesTheBreaker() {
+        openBreaker();
+
+        assertEquals(HttpStatus.NOT_FOUND, call(respond(HttpStatus.NOT_FOUND)).block().statusCode());
+        assertEquals(HttpStatus.OK, call(respond(HttpStatus.OK)).block().statusCode());
+    }
+}
@@ -0,0 +1,92 @@
+package ch.manajos.manajos.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbDownsamplerTest {
+
+    private static List<SteamService.PeakDataPoint> downsample(int[] peaks, int threshold) {
+        LttbDownsampler downsampler = new LttbDownsampler(peaks.length, threshold);
+        for (int i = 0; i < peaks.length; i++) {
+            downsampler.visit(i * 1000L, peaks[i]);
+        }
+        return downsampler.finish();
+    }
+
+    private static int[] flat(int size, int peak) {
+        int[] peaks = new int[size];
+        Arrays.fill(peaks, peak);
+        return peaks;
+    }
+
+    @Test
+    void emptyInput() {
+        assertTrue(downsample(new int[0], 10).isEmpty());
+    }
+
+    @Test
+    void keepsEveryPointWhenThresholdIsAtLeastTheSize() {
+        int[] peaks = {5, 3, 8, 1, 9};
+
+        assertEquals(5, downsample(peaks, 5).size());
+        assertEquals(5, downsample(peaks, 50).size());
+    }
+
+    @Test
+    void keepsOnlyTheEndsWhenThresholdIsBelowThree() {
+        int[] peaks = {5, 3, 8, 1, 9};
+
+        List<SteamService.PeakDataPoint> first = downsample(peaks, 1);
+        assertEquals(1, first.size());
+        assertEquals(0, first.get(0).getTimestamp());
+
+        List<SteamService.PeakDataPoint> ends = downsample(peaks, 2);
+        assertEquals(2, ends.size());
+        assertEquals(0, ends.get(0).getTimestamp());
+        assertEquals(4000, ends.get(1).getTimestamp());
+        assertEquals(9, ends.get(1).getPeak());
+    }
+
+    @Test
+    void keepsExactlyThresholdPointsInOrder() {
+        int[] peaks = new int[1000];
+        for (int i = 0; i < peaks.length; i++) {
+            peaks[i] = (i * 37) % 101;
+        }
+
+        List<SteamService.PeakDataPoint> points = downsample(peaks, 50);
+
+        assertEquals(50, points.size());
+        assertEquals(0, points.get(0).getTimestamp());
+        assertEquals(999_000, points.get(points.size() - 1).getTimestamp());
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.get(i).getTimestamp() > points.get(i - 1).getTimestamp());
+        }
+    }
+
+    @Test
+    void keepsASpike() {
+        int[] peaks = flat(100, 10);
+        peaks[42] = 1000;
+
+        List<SteamService.PeakDataPoint> points = downsample(peaks, 10);
+
+        assertEquals(10, points.size());
+        assertTrue(points.stream().anyMatch(point -> point.getTimestamp() == 42_000 && point.getPeak() == 1000));
+    }
+
+    @Test
+    void ignoresPointsBeyondTheAnnouncedTotal() {
+        LttbDownsampler downsampler = new LttbDownsampler(3, 10);
+        for (int i = 0; i < 5; i++) {
+            downsampler.visit(i, i);
+        }
+
+        assertEquals(3, downsampler.finish().size());
+    }
+}
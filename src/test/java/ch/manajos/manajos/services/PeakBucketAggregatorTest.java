@@ -0,0 +1,66 @@
+package ch.manajos.manajos.services;
+
+import ch.manajos.manajos.dto.PeakBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeakBucketAggregatorTest {
+
+    @Test
+    void emptyInput() {
+        assertTrue(new PeakBucketAggregator(0, 10).finish().isEmpty());
+    }
+
+    @Test
+    void rejectsNonPositiveWidth() {
+        assertThrows(IllegalArgumentException.class, () -> new PeakBucketAggregator(0, 0));
+    }
+
+    @Test
+    void aggregatesEachBucket() {
+        PeakBucketAggregator aggregator = new PeakBucketAggregator(0, 10);
+        aggregator.visit(0, 4);
+        aggregator.visit(3, 10);
+        aggregator.visit(9, 1);
+
+        List<PeakBucket> buckets = aggregator.finish();
+
+        assertEquals(List.of(new PeakBucket(0, 10, 3, 1, 10, 5.0, 1)), buckets);
+    }
+
+    @Test
+    void omitsEmptyBuckets() {
+        PeakBucketAggregator aggregator = new PeakBucketAggregator(0, 10);
+        aggregator.visit(5, 1);
+        aggregator.visit(35, 2);
+
+        List<PeakBucket> buckets = aggregator.finish();
+
+        assertEquals(2, buckets.size());
+        assertEquals(0, buckets.get(0).getStart());
+        assertEquals(30, buckets.get(1).getStart());
+    }
+
+    @Test
+    void bucketsStartInclusiveAndEndExclusiveFromTheOrigin() {
+        PeakBucketAggregator aggregator = new PeakBucketAggregator(3, 10);
+        aggregator.visit(2, 1);
+        aggregator.visit(12, 2);
+        aggregator.visit(13, 3);
+
+        List<PeakBucket> buckets = aggregator.finish();
+
+        assertEquals(3, buckets.size());
+        assertEquals(-7, buckets.get(0).getStart());
+        assertEquals(3, buckets.get(0).getEnd());
+        assertEquals(3, buckets.get(1).getStart());
+        assertEquals(2, buckets.get(1).getLast());
+        assertEquals(13, buckets.get(2).getStart());
+        assertEquals(23, buckets.get(2).getEnd());
+    }
+}
@@ -0,0 +1,52 @@
+package ch.manajos.manajos.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyTrackerTest {
+
+    @Test
+    void noPercentileBeforeMinSamples() {
+        LatencyTracker tracker = new LatencyTracker(100, 0.95);
+        for (int i = 1; i <= 32; i++) {
+            tracker.record(i);
+        }
+
+        assertEquals(-1, tracker.percentileNanos(33));
+    }
+
+    @Test
+    void computesThePercentileOfTheWindow() {
+        LatencyTracker tracker = new LatencyTracker(100, 0.95);
+        // Recorded out of order, the tracker sorts them
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(i);
+        }
+
+        assertEquals(95, tracker.percentileNanos(20));
+    }
+
+    @Test
+    void percentileOfASingleValueWindow() {
+        LatencyTracker tracker = new LatencyTracker(16, 0.95);
+        for (int i = 0; i < 16; i++) {
+            tracker.record(42);
+        }
+
+        assertEquals(42, tracker.percentileNanos(1));
+    }
+
+    @Test
+    void oldSamplesLeaveTheWindow() {
+        LatencyTracker tracker = new LatencyTracker(16, 0.95);
+        for (int i = 0; i < 16; i++) {
+            tracker.record(1_000_000);
+        }
+        for (int i = 0; i < 16; i++) {
+            tracker.record(10);
+        }
+
+        assertEquals(10, tracker.percentileNanos(16));
+    }
+}
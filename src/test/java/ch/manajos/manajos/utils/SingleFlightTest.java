@@ -0,0 +1,147 @@
+package ch.manajos.manajos.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneSubscription() {
+        SingleFlight singleFlight = new SingleFlight();
+        Sinks.One<String> load = Sinks.one();
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        singleFlight.execute("key", () -> load.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()))
+                .subscribe(first::set);
+        singleFlight.execute("key", () -> load.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()))
+                .subscribe(second::set);
+
+        assertEquals(1, subscriptions.get());
+        assertTrue(singleFlight.isInFlight("key"));
+
+        load.tryEmitValue("value");
+
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+    }
+
+    @Test
+    void otherKeysLoadIndependently() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        singleFlight.execute("a", () -> Mono.<String>never().doOnSubscribe(s -> subscriptions.incrementAndGet())).subscribe();
+        singleFlight.execute("b", () -> Mono.<String>never().doOnSubscribe(s -> subscriptions.incrementAndGet())).subscribe();
+
+        assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    void entryIsRemovedOnSuccess() {
+        SingleFlight singleFlight = new SingleFlight();
+
+        assertEquals("value", singleFlight.execute("key", () -> Mono.just("value")).block());
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void entryIsRemovedOnEmptyCompletion() {
+        SingleFlight singleFlight = new SingleFlight();
+
+        assertNull(singleFlight.execute("key", Mono::<String>empty).block());
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void entryIsRemovedOnError() {
+        SingleFlight singleFlight = new SingleFlight();
+        IllegalStateException failure = new IllegalStateException("upstream down");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("key", () -> Mono.<String>error(failure)).block());
+
+        assertSame(failure, thrown);
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void entryIsRemovedWhenTheLoaderThrows() {
+        SingleFlight singleFlight = new SingleFlight();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("no loader");
+        }).block());
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void cancelledCallerDoesNotCancelTheSharedLoad() {
+        SingleFlight singleFlight = new SingleFlight();
+        Sinks.One<String> load = Sinks.one();
+        AtomicInteger cancellations = new AtomicInteger();
+
+        Disposable cancelled = singleFlight.execute("key", () -> load.asMono().doOnCancel(cancellations::incrementAndGet))
+                .subscribe();
+        AtomicReference<String> other = new AtomicReference<>();
+        singleFlight.execute("key", () -> Mono.just("second load")).subscribe(other::set);
+
+        cancelled.dispose();
+        assertEquals(0, cancellations.get());
+        assertTrue(singleFlight.isInFlight("key"));
+
+        load.tryEmitValue("value");
+
+        assertEquals("value", other.get());
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void entryIsRemovedWhenTheOnlyCallerCancelled() {
+        SingleFlight singleFlight = new SingleFlight();
+        Sinks.One<String> load = Sinks.one();
+
+        singleFlight.execute("key", load::asMono).subscribe().dispose();
+        load.tryEmitValue("value");
+
+        assertFalse(singleFlight.isInFlight("key"));
+    }
+
+    @Test
+    void lateSubscriberAfterCompletionStartsANewFlight() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger loads = new AtomicInteger();
+
+        Mono<Integer> call = singleFlight.execute("key", () -> Mono.fromSupplier(loads::incrementAndGet));
+
+        assertEquals(1, call.block());
+        assertEquals(2, call.block());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void backgroundLoadIsSkippedWhileOneIsInFlight() {
+        SingleFlight singleFlight = new SingleFlight();
+        Sinks.One<String> load = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("key", load::asMono).subscribe();
+        singleFlight.executeInBackground("key", () -> Mono.fromSupplier(loads::incrementAndGet));
+        load.tryEmitValue("value");
+
+        assertEquals(0, loads.get());
+    }
+}
@@ -0,0 +1,109 @@
+package ch.manajos.manajos.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void burstIsServedWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(1, 3, now::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND, bucket.reserve());
+    }
+
+    @Test
+    void waitingCallersAreDelayedInArrivalOrder() {
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND / 2, bucket.reserve());
+        assertEquals(SECOND, bucket.reserve());
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(2, 2, now::get);
+        bucket.reserve();
+        bucket.reserve();
+
+        now.addAndGet(SECOND / 2);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND / 2, bucket.reserve());
+    }
+
+    @Test
+    void refillIsCappedAtTheBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        bucket.reserve();
+        bucket.reserve();
+
+        now.addAndGet(60 * SECOND);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND / 10, bucket.reserve());
+    }
+
+    @Test
+    void releasedTokenIsGivenBack() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+        bucket.reserve();
+        assertEquals(SECOND, bucket.reserve());
+
+        bucket.release();
+
+        assertEquals(SECOND, bucket.reserve());
+    }
+
+    @Test
+    void acquireCompletesImmediatelyWhileTokensAreLeft() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        assertTrue(bucket.acquire().toFuture().isDone());
+    }
+
+    @Test
+    void cancelledAcquireReleasesItsToken() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+        bucket.reserve();
+
+        Disposable waiting = bucket.acquire().subscribe();
+        assertFalse(waiting.isDisposed());
+        waiting.dispose();
+
+        // The cancelled caller's token is available again: the next one waits a single interval
+        assertEquals(SECOND, bucket.reserve());
+    }
+
+    @Test
+    void acquireDoesNotTakeATokenBeforeSubscription() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        bucket.acquire();
+
+        assertEquals(0, bucket.reserve());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}